@@ -0,0 +1,42 @@
+package com.example.bankcards.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Ограничение одновременных обращений к БД для профиля {@code virtual-threads}.
+ *
+ * <p>Источник данных приложения оборачивается в {@link AdmissionControlledDataSource},
+ * если {@code db-admission.enabled=true}. Число разрешений по умолчанию равно
+ * размеру пула Hikari.</p>
+ */
+@Configuration
+@ConditionalOnProperty(name = "db-admission.enabled", havingValue = "true")
+public class DbAdmissionConfig {
+
+    /**
+     * Оборачивает источник данных в ограничитель.
+     *
+     * @param maxConcurrency сколько соединений может быть выдано одновременно
+     * @param acquireTimeoutMs сколько запрос ждёт соединения, прежде чем получить отказ
+     */
+    @Bean
+    public static BeanPostProcessor dbAdmissionPostProcessor(
+            @Value("${db-admission.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency,
+            @Value("${db-admission.acquire-timeout-ms:5000}") long acquireTimeoutMs) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof AdmissionControlledDataSource)) {
+                    return new AdmissionControlledDataSource(dataSource, maxConcurrency, acquireTimeoutMs);
+                }
+                return bean;
+            }
+        };
+    }
+}
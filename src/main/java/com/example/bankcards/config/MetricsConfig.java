@@ -0,0 +1,37 @@
+package com.example.bankcards.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Метрики приложения, которые не публикуются сервисами напрямую.
+ *
+ * <p>Число SQL-запросов на HTTP-запрос: Hibernate передаёт каждый запрос
+ * в {@link SqlStatementCounter}, а {@link SqlStatementMetricsFilter} записывает итог.
+ * Фильтр стоит перед фильтрами безопасности, чтобы учитывать и загрузку пользователя.
+ * Бюджет запросов задаётся свойством {@code sql-budget.max-statements}.</p>
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlStatementCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlStatementCounter());
+    }
+
+    @Bean
+    public FilterRegistrationBean<SqlStatementMetricsFilter> sqlStatementMetricsFilter(
+            MeterRegistry meterRegistry,
+            @Value("${sql-budget.max-statements:0}") int maxStatements) {
+        FilterRegistrationBean<SqlStatementMetricsFilter> registration = new FilterRegistrationBean<>(
+                new SqlStatementMetricsFilter(meterRegistry, maxStatements));
+        registration.setOrder(SecurityProperties.DEFAULT_FILTER_ORDER - 1);
+        return registration;
+    }
+}
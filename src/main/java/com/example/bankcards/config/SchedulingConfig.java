@@ -0,0 +1,13 @@
+package com.example.bankcards.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Включает выполнение фоновых задач по расписанию
+ * (например, очистку просроченных ключей идемпотентности).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
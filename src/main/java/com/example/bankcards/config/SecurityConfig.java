@@ -84,7 +84,9 @@ public class SecurityConfig {
      * <p>Включает:</p>
      * <ul>
      *     <li>отключение CSRF (используется JWT)</li>
-     *     <li>публичный доступ к auth и swagger эндпоинтам</li>
+     *     <li>публичный доступ к auth и swagger эндпоинтам и к проверке состояния</li>
+     *     <li>{@code /actuator/prometheus} — для администратора и сборщика метрик</li>
+     *     <li>доступ к остальным эндпоинтам actuator только для администратора</li>
      *     <li>JWT-фильтр до {@link UsernamePasswordAuthenticationFilter}</li>
      * </ul>
      *
@@ -100,8 +102,11 @@ public class SecurityConfig {
                         .requestMatchers(
                                 "/api/auth/**",
                                 "/swagger-ui/**",
-                                "/api-docs/**"
+                                "/api-docs/**",
+                                "/actuator/health"
                         ).permitAll()
+                        .requestMatchers("/actuator/prometheus").hasAnyRole("ADMIN", "METRICS")
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtAuthFilter, UsernamePasswordAuthenticationFilter.class)
@@ -0,0 +1,41 @@
+package com.example.bankcards.config;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Считает SQL-запросы Hibernate, выполненные текущим потоком.
+ *
+ * <p>Подсчёт идёт только между {@link #start()} и {@link #stop()}; вне этого интервала
+ * инспектор ничего не делает. Запросы через {@code JdbcTemplate} в счёт не входят.</p>
+ */
+public class SqlStatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        int[] count = COUNT.get();
+        if (count != null) {
+            count[0]++;
+        }
+        return sql;
+    }
+
+    /**
+     * Начинает подсчёт в текущем потоке.
+     */
+    public static void start() {
+        COUNT.set(new int[1]);
+    }
+
+    /**
+     * Завершает подсчёт в текущем потоке.
+     *
+     * @return число запросов с момента {@link #start()}
+     */
+    public static int stop() {
+        int[] count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count[0];
+    }
+}
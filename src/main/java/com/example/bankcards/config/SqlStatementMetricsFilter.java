@@ -0,0 +1,64 @@
+package com.example.bankcards.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Публикует число SQL-запросов Hibernate на HTTP-запрос и следит за их бюджетом.
+ *
+ * <p>Значения пишутся в {@code bank.http.sql.statements} с тегами {@code method} и
+ * {@code uri} — шаблоном пути обработчика, как в {@code http.server.requests} —
+ * и в атрибут запроса {@link #STATEMENTS_ATTRIBUTE}.</p>
+ *
+ * <p>Если запрос выполнил больше {@code sql-budget.max-statements} запросов, пишется
+ * предупреждение. Ответ к этому моменту уже отправлен, а транзакция зафиксирована,
+ * поэтому фильтр запрос не прерывает: превышение бюджета проверяют интеграционные
+ * тесты по атрибуту {@link #STATEMENTS_ATTRIBUTE}.</p>
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class SqlStatementMetricsFilter extends OncePerRequestFilter {
+
+    /** Атрибут запроса с числом выполненных SQL-запросов. */
+    public static final String STATEMENTS_ATTRIBUTE = SqlStatementMetricsFilter.class.getName() + ".STATEMENTS";
+
+    private final MeterRegistry meterRegistry;
+
+    /** Сколько запросов допускается на HTTP-запрос; 0 — без ограничения. */
+    private final int maxStatements;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            int statements = SqlStatementCounter.stop();
+            Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+            request.setAttribute(STATEMENTS_ATTRIBUTE, statements);
+            DistributionSummary.builder("bank.http.sql.statements")
+                    .baseUnit("statements")
+                    .tag("method", request.getMethod())
+                    .tag("uri", uri)
+                    .register(meterRegistry)
+                    .record(statements);
+            if (maxStatements > 0 && statements > maxStatements) {
+                log.warn("{} {}: {} SQL-запросов при бюджете {}", request.getMethod(), uri, statements, maxStatements);
+            }
+        }
+    }
+}
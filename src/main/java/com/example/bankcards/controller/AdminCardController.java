@@ -1,24 +1,36 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.CardFilterRequest;
 import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CardSummary;
 import com.example.bankcards.dto.CreateCardRequest;
+import com.example.bankcards.dto.PagedResponse;
+import com.example.bankcards.dto.StatementFormat;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.service.AdminCardService;
+import com.example.bankcards.util.StatementWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
-import io.swagger.v3.oas.annotations.media.ArraySchema;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.net.URI;
-import java.util.List;
-import java.util.stream.Collectors;
+import java.time.LocalDate;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("api/admin/cards")
@@ -27,7 +39,10 @@ import java.util.stream.Collectors;
 @Tag(name = "Admin Cards", description = "Управление банковскими картами администратором")
 public class AdminCardController {
 
+    private static final int EXPORT_BUFFER_SIZE = 16 * 1024;
+
     private final AdminCardService adminCardService;
+    private final ObjectMapper objectMapper;
 
     @Operation(summary = "Создать карту для пользователя")
     @ApiResponse(
@@ -44,20 +59,54 @@ public class AdminCardController {
     }
 
     @Operation(
-            summary = "Получить все банковские карты в системе",
-            description = "Возвращает полный список всех банковских карт в замаскированном виде."
+            summary = "Получить банковские карты в системе",
+            description = "Возвращает страницу карт в замаскированном виде с фильтрацией по статусу, "
+                    + "балансу и владельцу. По умолчанию — по возрастанию ID."
     )
     @ApiResponse(
             responseCode = "200",
             description = "Успешно",
-            content = @Content(array = @ArraySchema(schema = @Schema(implementation = CardResponse.class)))
+            content = @Content(schema = @Schema(implementation = PagedResponse.class))
+    )
+    @GetMapping
+    public ResponseEntity<PagedResponse<CardResponse>> getCards(
+            @PageableDefault(sort = "id") Pageable pageable,
+            @Valid CardFilterRequest filter,
+            @RequestParam(value = "ownerId", required = false) Long ownerId) {
+        Page<CardResponse> responsePage = adminCardService.getCards(filter, ownerId, pageable)
+                .map(this::toResponse);
+
+        return ResponseEntity.ok(PagedResponse.of(responsePage));
+    }
+
+    @Operation(
+            summary = "Выгрузить банковские карты",
+            description = "Все карты, подходящие под фильтр, по возрастанию ID в формате ndjson или csv, сжатые gzip",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Успешно"),
+                    @ApiResponse(responseCode = "400", description = "Некорректный формат или фильтр"),
+            }
     )
-    @GetMapping("/get-all")
-    public ResponseEntity<List<CardResponse>> getAllCards() {
-        List<CardResponse> cards = adminCardService.getAllCards().stream()
-                .map(this::toResponse)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(cards);
+    @GetMapping("/export")
+    public void exportCards(
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @Valid CardFilterRequest filter,
+            @RequestParam(value = "ownerId", required = false) Long ownerId,
+            HttpServletResponse response) throws IOException {
+        StatementFormat exportFormat = StatementFormat.of(format);
+
+        response.setContentType(exportFormat.getMediaType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("cards-%s.%s".formatted(LocalDate.now(), exportFormat.getExtension()))
+                .build()
+                .toString());
+
+        try (StatementWriter<CardResponse> writer = StatementWriter.cards(exportFormat,
+                new GZIPOutputStream(response.getOutputStream(), EXPORT_BUFFER_SIZE), objectMapper)) {
+            writer.writeHeader();
+            adminCardService.streamCards(filter, ownerId, card -> writer.write(toResponse(card)));
+        }
     }
 
     @Operation(
@@ -96,7 +145,7 @@ public class AdminCardController {
     private CardResponse toResponse(Card card) {
         return CardResponse.builder()
                 .id(card.getId())
-                .ownerId(card.getOwner().getId())
+                .ownerId(card.getOwner() != null ? card.getOwner().getId() : null)
                 .maskedNumber(card.getMaskedNumber())
                 .status(card.getStatus())
                 .balance(card.getBalance())
@@ -104,4 +153,16 @@ public class AdminCardController {
                 .currency(card.getCurrency())
                 .build();
     }
-}
+
+    private CardResponse toResponse(CardSummary card) {
+        return CardResponse.builder()
+                .id(card.id())
+                .ownerId(card.ownerId())
+                .maskedNumber(card.maskedNumber())
+                .status(card.status())
+                .balance(card.balance())
+                .expiry(card.expiry())
+                .currency(card.currency())
+                .build();
+    }
+}
\ No newline at end of file
@@ -1,21 +1,36 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.CursorPagedResponse;
+import com.example.bankcards.dto.StatementFormat;
 import com.example.bankcards.dto.TransactionResponse;
 import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.exception.InvalidStatementPeriodException;
+import com.example.bankcards.service.TransactionCursor;
 import com.example.bankcards.service.TransactionService;
+import com.example.bankcards.util.StatementWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Slice;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
 import java.security.Principal;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/user/transactions")
@@ -24,7 +39,11 @@ import java.util.List;
 @PreAuthorize("hasRole('USER')")
 public class TransactionController {
 
+    private static final int MAX_PAGE_SIZE = 500;
+    private static final int EXPORT_BUFFER_SIZE = 16 * 1024;
+
     private final TransactionService transactionService;
+    private final ObjectMapper objectMapper;
 
     @Operation(
             summary = "Получить транзакции по карте",
@@ -43,6 +62,81 @@ public class TransactionController {
         return ResponseEntity.ok(transactions);
     }
 
+    @Operation(
+            summary = "Получить страницу транзакций по карте",
+            description = "Транзакции от новых к старым. Для следующей страницы передайте nextCursor из ответа",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Успешно"),
+                    @ApiResponse(responseCode = "400", description = "Некорректный курсор"),
+            }
+    )
+    @GetMapping("/{cardId}/page")
+    public ResponseEntity<CursorPagedResponse<TransactionResponse>> getTransactionsPage(
+            @PathVariable("cardId") Long cardId,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "size", defaultValue = "50") int size,
+            Principal principal) {
+        int pageSize = Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+        Slice<Transaction> slice = transactionService.getUserCardTransactionsPage(
+                principal.getName(), cardId, TransactionCursor.decode(cursor), pageSize);
+
+        List<Transaction> content = slice.getContent();
+        String nextCursor = slice.hasNext()
+                ? TransactionCursor.after(content.get(content.size() - 1)).encode()
+                : null;
+
+        CursorPagedResponse<TransactionResponse> response = CursorPagedResponse.<TransactionResponse>builder()
+                .content(content.stream().map(this::toResponse).toList())
+                .size(pageSize)
+                .nextCursor(nextCursor)
+                .last(!slice.hasNext())
+                .build();
+
+        return ResponseEntity.ok(response);
+    }
+
+    @Operation(
+            summary = "Выгрузить выписку по карте",
+            description = "Транзакции за период от старых к новым в формате ndjson или csv, сжатые gzip. "
+                    + "По умолчанию — за год до текущей даты",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "Успешно"),
+                    @ApiResponse(responseCode = "400", description = "Некорректный формат или период"),
+            }
+    )
+    @GetMapping("/{cardId}/export")
+    public void exportTransactions(
+            @PathVariable("cardId") Long cardId,
+            @RequestParam(value = "format", defaultValue = "ndjson") String format,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            Principal principal,
+            HttpServletResponse response) throws IOException {
+        StatementFormat statementFormat = StatementFormat.of(format);
+        LocalDate periodTo = to != null ? to : LocalDate.now();
+        LocalDate periodFrom = from != null ? from : periodTo.minusYears(1);
+        if (periodFrom.isAfter(periodTo)) {
+            throw new InvalidStatementPeriodException();
+        }
+        // Проверка до начала записи: после первых байт статус ответа уже не изменить
+        transactionService.checkCardOwnedByUser(cardId, principal.getName());
+
+        response.setContentType(statementFormat.getMediaType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("statement-%d-%s-%s.%s".formatted(cardId, periodFrom, periodTo, statementFormat.getExtension()))
+                .build()
+                .toString());
+
+        try (StatementWriter<TransactionResponse> writer = StatementWriter.transactions(statementFormat,
+                new GZIPOutputStream(response.getOutputStream(), EXPORT_BUFFER_SIZE), objectMapper)) {
+            writer.writeHeader();
+            transactionService.streamUserCardTransactions(principal.getName(), cardId,
+                    periodFrom.atStartOfDay(), periodTo.plusDays(1).atStartOfDay(),
+                    t -> writer.write(toResponse(t)));
+        }
+    }
+
     public TransactionResponse toResponse(Transaction t) {
         return TransactionResponse.builder()
                 .id(t.getId())
@@ -1,27 +1,27 @@
 package com.example.bankcards.controller;
 
-import com.example.bankcards.dto.CardFilterRequest;
-import com.example.bankcards.dto.CardResponse;
-import com.example.bankcards.dto.PagedResponse;
-import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.*;
 import com.example.bankcards.entity.Card;
+import com.example.bankcards.service.IdempotencyService;
 import com.example.bankcards.service.UserCardService;
 import io.swagger.v3.oas.annotations.Operation;
-import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.math.BigDecimal;
 import java.security.Principal;
+import java.util.List;
 
 @RestController
 @RequestMapping("/api/user/cards")
@@ -30,7 +30,11 @@ import java.security.Principal;
 @Tag(name = "User Cards", description = "Работа с картами пользователя")
 public class UserCardController {
 
+    private static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    private static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
     private final UserCardService userCardService;
+    private final IdempotencyService idempotencyService;
 
     @GetMapping("/get")
     @Operation(summary = "Получить замаскированные карты пользователя с пагинацией")
@@ -42,48 +46,32 @@ public class UserCardController {
     public ResponseEntity<PagedResponse<CardResponse>> getUserCards(
             Pageable pageable,
             CardFilterRequest filter,
+            @Parameter(description = "Посчитать totalElements и totalPages; без него выполняется на один запрос меньше")
+            @RequestParam(value = "withTotal", defaultValue = "false") boolean withTotal,
             Principal principal) {
 
-        Page<Card> cardsPage = userCardService.getUserCards(principal.getName(), filter, pageable);
-        Page<CardResponse> responsePage = cardsPage.map(this::toResponse);
-
-        PagedResponse<CardResponse> pagedResponse = PagedResponse.<CardResponse>builder()
-                .content(responsePage.getContent())
-                .pageNumber(responsePage.getNumber())
-                .pageSize(responsePage.getSize())
-                .totalElements(responsePage.getTotalElements())
-                .totalPages(responsePage.getTotalPages())
-                .last(responsePage.isLast())
-                .build();
+        Slice<CardResponse> responsePage = userCardService.getUserCards(principal.getName(), filter, pageable, withTotal)
+                .map(this::toResponse);
 
-        return ResponseEntity.ok(pagedResponse);
+        return ResponseEntity.ok(PagedResponse.of(responsePage));
     }
 
     @Operation(summary = "Получить расшифрованные карты пользователя")
     @ApiResponse(
             responseCode = "200",
             description = "Успешно",
-            content = @Content(
-                    array = @ArraySchema(
-                            schema = @Schema(implementation = PagedResponse.class)
-                    )
-            )
+            content = @Content(schema = @Schema(implementation = PagedResponse.class))
     )
     @GetMapping("/get-decrypted")
-    public ResponseEntity<PagedResponse<CardResponse>> getDecryptedUserCards(Pageable pageable, Principal principal) {
-        Page<Card> cardsPage = userCardService.getDecryptedPanUserCards(principal.getName(), pageable);
-        Page<CardResponse> responsePage = cardsPage.map(this::toResponse);
-
-        PagedResponse<CardResponse> pagedResponse = PagedResponse.<CardResponse>builder()
-                .content(responsePage.getContent())
-                .pageNumber(responsePage.getNumber())
-                .pageSize(responsePage.getSize())
-                .totalElements(responsePage.getTotalElements())
-                .totalPages(responsePage.getTotalPages())
-                .last(responsePage.isLast())
-                .build();
+    public ResponseEntity<PagedResponse<CardResponse>> getDecryptedUserCards(
+            Pageable pageable,
+            @Parameter(description = "Посчитать totalElements и totalPages; без него выполняется на один запрос меньше")
+            @RequestParam(value = "withTotal", defaultValue = "false") boolean withTotal,
+            Principal principal) {
+        Slice<Card> cardsPage = userCardService.getDecryptedPanUserCards(principal.getName(), pageable, withTotal);
+        Slice<CardResponse> responsePage = cardsPage.map(this::toResponse);
 
-        return ResponseEntity.ok(pagedResponse);
+        return ResponseEntity.ok(PagedResponse.of(responsePage));
     }
 
     @Operation(summary = "Получить расшифрованную карту по её ID")
@@ -99,17 +87,89 @@ public class UserCardController {
         return ResponseEntity.ok(response);
     }
 
-    @Operation(summary = "Перевод между картами пользователя")
-    @ApiResponse(responseCode = "204", description = "Успешно")
+    @Operation(
+            summary = "Перевод между картами пользователя",
+            description = "С заголовком Idempotency-Key перевод выполняется не более одного раза: повтор с тем же "
+                    + "ключом и параметрами в течение суток возвращает сохранённый результат (успех или ошибку "
+                    + "с прежним статусом) без повторного перевода."
+    )
+    @ApiResponse(
+            responseCode = "204",
+            description = "Успешно",
+            headers = @Header(name = IDEMPOTENT_REPLAYED_HEADER,
+                    description = "true, если возвращён сохранённый результат без повторного перевода")
+    )
+    @ApiResponse(responseCode = "400", description = "Некорректный ключ идемпотентности")
+    @ApiResponse(responseCode = "409",
+            description = "Запрос с этим ключом ещё выполняется или карта изменяется параллельно; повторите запрос")
+    @ApiResponse(responseCode = "422", description = "Ключ идемпотентности уже использован с другими параметрами перевода")
     @PostMapping("/transfer")
-    public ResponseEntity<Void> transferBetweenCards(@Valid @RequestBody TransferRequest request, Principal principal) {
-        userCardService.transferBetweenCards(
+    public ResponseEntity<Void> transferBetweenCards(
+            @Valid @RequestBody TransferRequest request,
+            @Parameter(description = "Ключ идемпотентности: повтор запроса с тем же ключом вернёт сохранённый результат")
+            @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+            Principal principal) {
+        if (idempotencyKey == null) {
+            userCardService.transferBetweenCards(
+                    principal.getName(),
+                    request.getFromCardId(),
+                    request.getToCardId(),
+                    request.getAmount()
+            );
+            return ResponseEntity.noContent().build();
+        }
+
+        boolean replayed = idempotencyService.execute(
+                principal.getName(), idempotencyKey, request.fingerprint(),
+                storeOutcome -> userCardService.transferBetweenCards(
+                        principal.getName(),
+                        request.getFromCardId(),
+                        request.getToCardId(),
+                        request.getAmount(),
+                        storeOutcome
+                ));
+        if (replayed) {
+            return ResponseEntity.noContent().header(IDEMPOTENT_REPLAYED_HEADER, "true").build();
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    @Operation(
+            summary = "Пакетный перевод между картами пользователя",
+            description = "Все переводы пакета выполняются в одной транзакции по порядку. ALL_OR_NOTHING применяет "
+                    + "пакет целиком или не применяет вовсе: корректные переводы получают статус ROLLED_BACK, "
+                    + "если отклонён любой другой. BEST_EFFORT применяет все корректные переводы и пропускает ошибочные."
+    )
+    @ApiResponse(
+            responseCode = "200",
+            description = "Пакет обработан, результат по каждому переводу",
+            content = @Content(schema = @Schema(implementation = BatchTransferResponse.class))
+    )
+    @ApiResponse(responseCode = "400", description = "Пустой пакет, более 1000 переводов или некорректный перевод")
+    @PostMapping("/transfer/batch")
+    public ResponseEntity<BatchTransferResponse> transferBatch(@Valid @RequestBody BatchTransferRequest request,
+                                                               Principal principal) {
+        List<BatchTransferItemResult> results = userCardService.transferBatch(
                 principal.getName(),
-                request.getFromCardId(),
-                request.getToCardId(),
-                request.getAmount()
+                request.getTransfers(),
+                request.getMode()
         );
-        return ResponseEntity.noContent().build();
+
+        long completed = results.stream()
+                .filter(r -> r.getStatus() == BatchTransferItemStatus.COMPLETED)
+                .count();
+        long failed = results.stream()
+                .filter(r -> r.getStatus() == BatchTransferItemStatus.FAILED)
+                .count();
+
+        BatchTransferResponse response = BatchTransferResponse.builder()
+                .mode(request.getMode())
+                .completed((int) completed)
+                .failed((int) failed)
+                .results(results)
+                .build();
+
+        return ResponseEntity.ok(response);
     }
 
     @Operation(summary = "Получить баланс карты")
@@ -132,7 +192,7 @@ public class UserCardController {
         return ResponseEntity.noContent().build();
     }
 
-    private CardResponse toResponse(Card card) {
+    CardResponse toResponse(Card card) {
         return CardResponse.builder()
                 .id(card.getId())
                 .maskedNumber(card.getMaskedNumber())
@@ -143,4 +203,15 @@ public class UserCardController {
                 .currency(card.getCurrency())
                 .build();
     }
+
+    CardResponse toResponse(CardSummary card) {
+        return CardResponse.builder()
+                .id(card.id())
+                .maskedNumber(card.maskedNumber())
+                .status(card.status())
+                .balance(card.balance())
+                .expiry(card.expiry())
+                .currency(card.currency())
+                .build();
+    }
 }
@@ -0,0 +1,13 @@
+package com.example.bankcards.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+@Data
+@Builder
+public class BatchTransferItemResult {
+    private int index;
+    private BatchTransferItemStatus status;
+    private Integer code;
+    private String error;
+}
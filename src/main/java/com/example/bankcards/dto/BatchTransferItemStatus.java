@@ -0,0 +1,22 @@
+package com.example.bankcards.dto;
+
+/**
+ * Результат отдельного перевода в пакете.
+ */
+public enum BatchTransferItemStatus {
+    /**
+     * Перевод выполнен.
+     */
+    COMPLETED,
+
+    /**
+     * Перевод отклонён.
+     */
+    FAILED,
+
+    /**
+     * Перевод корректен, но не применён из-за ошибки в другом переводе пакета
+     * (режим {@link BatchTransferMode#ALL_OR_NOTHING}).
+     */
+    ROLLED_BACK
+}
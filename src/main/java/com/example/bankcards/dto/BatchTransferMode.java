@@ -0,0 +1,16 @@
+package com.example.bankcards.dto;
+
+/**
+ * Режим применения пакета переводов.
+ */
+public enum BatchTransferMode {
+    /**
+     * Пакет применяется целиком или не применяется вовсе.
+     */
+    ALL_OR_NOTHING,
+
+    /**
+     * Применяются все корректные переводы, ошибочные пропускаются.
+     */
+    BEST_EFFORT
+}
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder
+public class BatchTransferResponse {
+    private BatchTransferMode mode;
+    private int completed;
+    private int failed;
+    private List<BatchTransferItemResult> results;
+}
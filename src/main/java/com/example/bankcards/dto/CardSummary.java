@@ -0,0 +1,32 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.util.CardUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Карта для списков с замаскированным номером: только нужные столбцы {@code cards},
+ * без зашифрованного номера, ключа и владельца.
+ * Выбирается конструктором в запросе, поэтому ни карта, ни её владелец не загружаются как сущности
+ * и не проверяются на изменения при сбросе контекста.
+ *
+ * @param id ID карты
+ * @param ownerId ID владельца, столбец {@code owner_id}
+ * @param panLast4 последние 4 цифры номера
+ * @param status статус карты
+ * @param balance баланс
+ * @param expiry дата окончания действия
+ * @param currency валюта
+ */
+public record CardSummary(Long id, Long ownerId, String panLast4, CardStatus status,
+                          BigDecimal balance, LocalDate expiry, String currency) {
+
+    /**
+     * @return замаскированный номер карты
+     */
+    public String maskedNumber() {
+        return CardUtils.maskCardNumber(panLast4);
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.bankcards.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Builder;
 import lombok.Data;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -11,7 +14,30 @@ public class PagedResponse<T> {
     private List<T> content;
     private int pageNumber;
     private int pageSize;
-    private long totalElements;
-    private int totalPages;
+    /** Только для {@link Page}: без {@code withTotal=true} число записей не считается. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long totalElements;
+    /** Только для {@link Page}. */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer totalPages;
     private boolean last;
+
+    /**
+     * Собирает ответ из страницы или среза. Итоги заполняются только для {@link Page}.
+     *
+     * @param slice страница или срез
+     * @return ответ с пагинацией
+     */
+    public static <T> PagedResponse<T> of(Slice<T> slice) {
+        PagedResponseBuilder<T> builder = PagedResponse.<T>builder()
+                .content(slice.getContent())
+                .pageNumber(slice.getNumber())
+                .pageSize(slice.getSize())
+                .last(slice.isLast());
+        if (slice instanceof Page<T> page) {
+            builder.totalElements(page.getTotalElements())
+                    .totalPages(page.getTotalPages());
+        }
+        return builder.build();
+    }
 }
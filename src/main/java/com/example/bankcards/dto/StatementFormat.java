@@ -0,0 +1,41 @@
+package com.example.bankcards.dto;
+
+import com.example.bankcards.exception.UnsupportedStatementFormatException;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Формат выгрузки выписки по карте.
+ */
+@Getter
+@RequiredArgsConstructor
+public enum StatementFormat {
+    /**
+     * Один JSON-объект транзакции на строку.
+     */
+    NDJSON("application/x-ndjson", "ndjson"),
+
+    /**
+     * CSV с заголовком.
+     */
+    CSV("text/csv", "csv");
+
+    private final String mediaType;
+    private final String extension;
+
+    /**
+     * Определяет формат по значению параметра запроса без учёта регистра.
+     *
+     * @param value значение параметра {@code format}
+     * @return формат выписки
+     * @throws UnsupportedStatementFormatException если формат не поддерживается
+     */
+    public static StatementFormat of(String value) {
+        for (StatementFormat format : values()) {
+            if (format.extension.equalsIgnoreCase(value)) {
+                return format;
+            }
+        }
+        throw new UnsupportedStatementFormatException(value);
+    }
+}
@@ -17,4 +17,13 @@ public class TransferRequest {
     @NotNull
     @DecimalMin(value = "0.01", message = "Сумма должна быть больше 0")
     private BigDecimal amount;
+
+    /**
+     * Отпечаток параметров перевода для проверки повторов по ключу идемпотентности.
+     *
+     * @return строка, одинаковая для запросов с одинаковыми параметрами
+     */
+    public String fingerprint() {
+        return fromCardId + ":" + toCardId + ":" + amount.stripTrailingZeros().toPlainString();
+    }
 }
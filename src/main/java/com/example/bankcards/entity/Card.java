@@ -26,7 +26,8 @@ public class Card {
      * Уникальный идентификатор карты.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cards_id_seq")
+    @SequenceGenerator(name = "cards_id_seq", sequenceName = "cards_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -92,8 +93,27 @@ public class Card {
     private String decryptedNumber;
 
     /**
-     * AES-ключ, используемый для шифрования номера карты.
+     * ID ключа данных, которым зашифрован номер карты.
+     * <p>
+     * {@code null} у устаревших записей, зашифрованных собственным ключом из {@link #aesKey}.
+     */
+    @Column(name = "key_id")
+    private Integer keyId;
+
+    /**
+     * Собственный AES-ключ карты (Base64) у устаревших записей.
+     * <p>
+     * Новые карты шифруются ключом данных {@link #keyId}, поле остаётся пустым.
      */
-    @Column(name = "aes_key", nullable = false)
+    @Column(name = "aes_key")
     private String aesKey;
+
+    /**
+     * Версия строки для оптимистической блокировки.
+     * <p>
+     * Увеличивается при каждом изменении карты.
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
\ No newline at end of file
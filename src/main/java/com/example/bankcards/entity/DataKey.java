@@ -0,0 +1,41 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ключ данных для шифрования номеров карт.
+ * <p>
+ * Хранится обёрнутым мастер-ключом из конфигурации; карта ссылается
+ * на ключ, которым зашифрован её номер.
+ */
+@Entity
+@Table(name = "data_keys")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class DataKey {
+
+    /**
+     * Уникальный идентификатор ключа.
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    /**
+     * AES-ключ, обёрнутый мастер-ключом (Base64).
+     */
+    @Column(name = "wrapped_key", nullable = false)
+    private String wrappedKey;
+
+    /**
+     * Дата и время создания ключа.
+     */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,70 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Запись о запросе с ключом идемпотентности.
+ * <p>
+ * Хранит отпечаток параметров запроса и результат его выполнения,
+ * чтобы повторный запрос с тем же ключом вернул сохранённый результат
+ * без повторного выполнения операции.
+ */
+@Entity
+@Table(name = "idempotency_keys")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+
+    /**
+     * Пользователь и ключ идемпотентности.
+     */
+    @EmbeddedId
+    private IdempotencyRecordId id;
+
+    /**
+     * SHA-256 параметров запроса (hex).
+     */
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;
+
+    /**
+     * HTTP-статус результата.
+     * <p>
+     * {@code null}, пока запрос выполняется.
+     */
+    @Column(name = "response_status")
+    private Integer responseStatus;
+
+    /**
+     * Сообщение об ошибке для неуспешного результата.
+     */
+    @Column(name = "response_message", length = 1024)
+    private String responseMessage;
+
+    /**
+     * Срок аренды выполняющегося запроса.
+     * <p>
+     * После него незавершённый ключ может занять повторный запрос;
+     * {@code null}, когда результат сохранён.
+     */
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+
+    /**
+     * Дата и время первого запроса.
+     */
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Момент, после которого запись удаляется.
+     */
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,32 @@
+package com.example.bankcards.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * Составной ключ записи идемпотентности: пользователь и значение
+ * заголовка {@code Idempotency-Key}.
+ */
+@Embeddable
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@EqualsAndHashCode
+public class IdempotencyRecordId implements Serializable {
+
+    /**
+     * Логин пользователя, отправившего запрос.
+     */
+    @Column(nullable = false, length = 100)
+    private String username;
+
+    /**
+     * Ключ идемпотентности, переданный клиентом.
+     */
+    @Column(name = "idempotency_key", nullable = false, length = 100)
+    private String idempotencyKey;
+}
@@ -25,7 +25,8 @@ public class Transaction {
      * Уникальный идентификатор транзакции.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transactions_id_seq")
+    @SequenceGenerator(name = "transactions_id_seq", sequenceName = "transactions_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -70,6 +71,6 @@ public class Transaction {
     /**
      * Дата и время создания транзакции.
      */
-    @Column(name = "created_at")
+    @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
 }
@@ -26,7 +26,8 @@ public class User {
      * Уникальный идентификатор пользователя.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -53,6 +54,15 @@ public class User {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    /**
+     * Версия выданных JWT.
+     * <p>
+     * Увеличивается при изменении прав пользователя; токены с прежней версией
+     * перестают приниматься.
+     */
+    @Column(name = "token_version", nullable = false)
+    private long tokenVersion;
+
     /**
      * Роли пользователя.
      * <p>
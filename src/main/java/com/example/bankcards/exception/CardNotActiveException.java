@@ -0,0 +1,10 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class CardNotActiveException extends AppException {
+    public CardNotActiveException(Long cardId, String cardStatus) {
+        super("Операции по карте " + cardId + " невозможны в текущем статусе: " + cardStatus,
+                HttpStatus.CONFLICT);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class ConcurrentCardUpdateException extends RetryableAppException {
+    public ConcurrentCardUpdateException() {
+        super("Карта изменяется параллельно, повторите перевод позже", HttpStatus.CONFLICT);
+    }
+}
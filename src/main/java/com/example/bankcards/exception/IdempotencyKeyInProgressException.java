@@ -0,0 +1,9 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class IdempotencyKeyInProgressException extends AppException {
+    public IdempotencyKeyInProgressException(String key) {
+        super("Запрос с ключом идемпотентности " + key + " ещё выполняется", HttpStatus.CONFLICT);
+    }
+}
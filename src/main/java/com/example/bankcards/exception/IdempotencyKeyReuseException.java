@@ -0,0 +1,10 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class IdempotencyKeyReuseException extends AppException {
+    public IdempotencyKeyReuseException(String key) {
+        super("Ключ идемпотентности " + key + " уже использован с другими параметрами запроса",
+                HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+}
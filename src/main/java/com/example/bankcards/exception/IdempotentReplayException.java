@@ -0,0 +1,12 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Повтор сохранённого неуспешного результата запроса с тем же ключом идемпотентности.
+ */
+public class IdempotentReplayException extends AppException {
+    public IdempotentReplayException(String message, HttpStatus status) {
+        super(message, status);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidCursorException extends AppException {
+    public InvalidCursorException() {
+        super("Некорректный курсор страницы", HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidIdempotencyKeyException extends AppException {
+    public InvalidIdempotencyKeyException() {
+        super("Ключ идемпотентности должен быть непустой строкой длиной до 100 символов", HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class InvalidStatementPeriodException extends AppException {
+    public InvalidStatementPeriodException() {
+        super("Начало периода выписки позже его окончания", HttpStatus.BAD_REQUEST);
+    }
+}
@@ -0,0 +1,14 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Временная ошибка: операция не выполнена, но повтор того же запроса может пройти.
+ * <p>
+ * В отличие от бизнес-ошибок такой результат не сохраняется за ключом идемпотентности.
+ */
+public abstract class RetryableAppException extends AppException {
+    public RetryableAppException(String message, HttpStatus status) {
+        super(message, status);
+    }
+}
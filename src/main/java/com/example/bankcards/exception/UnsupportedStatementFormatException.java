@@ -0,0 +1,9 @@
+package com.example.bankcards.exception;
+
+import org.springframework.http.HttpStatus;
+
+public class UnsupportedStatementFormatException extends AppException {
+    public UnsupportedStatementFormatException(String format) {
+        super("Неподдерживаемый формат выписки: " + format, HttpStatus.BAD_REQUEST);
+    }
+}
@@ -2,16 +2,26 @@ package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Репозиторий для работы с банковскими картами.
  */
 public interface CardRepository extends JpaRepository<Card, Long>,
-        JpaSpecificationExecutor<Card> {
+        JpaSpecificationExecutor<Card>, CardRepositoryCustom {
 
     /**
      * Возвращает карты, принадлежащие указанному пользователю.
@@ -21,4 +31,94 @@ public interface CardRepository extends JpaRepository<Card, Long>,
      * @return страница карт пользователя
      */
     Page<Card> findAllByOwner(User owner, Pageable pageable);
+
+    /**
+     * Возвращает срез карт пользователя без подсчёта общего числа:
+     * выбирается на одну карту больше размера страницы, чтобы узнать, есть ли следующая.
+     *
+     * @param owner владелец карт
+     * @param pageable параметры пагинации
+     * @return срез карт пользователя
+     */
+    Slice<Card> findSliceByOwner(User owner, Pageable pageable);
+
+    /**
+     * Проверяет, что карта принадлежит пользователю, одним запросом без загрузки карты и владельца.
+     *
+     * @param id ID карты
+     * @param username имя владельца
+     * @return {@code true}, если карта существует и принадлежит пользователю
+     */
+    boolean existsByIdAndOwnerUsername(Long id, String username);
+
+    /**
+     * Возвращает следующую порцию устаревших карт: номер зашифрован собственным ключом
+     * или прежним режимом ECB.
+     *
+     * @param id ID последней обработанной карты
+     * @return до 500 карт с ID больше заданного, по возрастанию ID
+     */
+    @Query(value = """
+            SELECT * FROM cards
+             WHERE id > :id AND (key_id IS NULL OR encrypted_number NOT LIKE 'gcm1:%')
+             ORDER BY id
+             LIMIT 500
+            """, nativeQuery = true)
+    List<Card> findLegacyEncryptedAfter(@Param("id") Long id);
+
+    /**
+     * Возвращает карты по списку ID с блокировкой строк ({@code SELECT ... FOR UPDATE}).
+     * <p>
+     * Строки блокируются в порядке возрастания ID, поэтому транзакции,
+     * затрагивающие одни и те же карты, выстраиваются в очередь
+     * без взаимных блокировок (deadlock).
+     * Вызывать только внутри транзакции.
+     *
+     * @param ids идентификаторы карт
+     * @return найденные карты, отсортированные по ID
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id in :ids order by c.id")
+    List<Card> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Списывает сумму с активной карты пользователя одним запросом,
+     * только если на ней достаточно средств.
+     *
+     * @param cardId ID карты-источника
+     * @param username владелец карты
+     * @param amount сумма списания
+     * @return число изменённых строк: 1 — списание выполнено, 0 — условие не выполнено
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE cards
+               SET balance = balance - :amount, version = version + 1
+             WHERE id = :cardId
+               AND owner_id = (SELECT u.id FROM users u WHERE u.username = :username)
+               AND status = 'ACTIVE'
+               AND balance >= :amount
+            """, nativeQuery = true)
+    int debitIfSufficient(@Param("cardId") Long cardId,
+                          @Param("username") String username,
+                          @Param("amount") BigDecimal amount);
+
+    /**
+     * Зачисляет сумму на карту пользователя одним запросом.
+     *
+     * @param cardId ID карты-получателя
+     * @param username владелец карты
+     * @param amount сумма зачисления
+     * @return число изменённых строк: 1 — зачисление выполнено, 0 — карта не найдена или чужая
+     */
+    @Modifying
+    @Query(value = """
+            UPDATE cards
+               SET balance = balance + :amount, version = version + 1
+             WHERE id = :cardId
+               AND owner_id = (SELECT u.id FROM users u WHERE u.username = :username)
+            """, nativeQuery = true)
+    int credit(@Param("cardId") Long cardId,
+               @Param("username") String username,
+               @Param("amount") BigDecimal amount);
 }
@@ -0,0 +1,57 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.dto.CardSummary;
+import com.example.bankcards.entity.Card;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Операции над картами, которые не выражаются методами Spring Data:
+ * пакетные обновления через JDBC и выборки проекций по спецификациям.
+ */
+public interface CardRepositoryCustom {
+
+    /**
+     * Записывает новые балансы карт одним пакетом UPDATE и увеличивает версии строк.
+     * <p>
+     * Вызывается внутри транзакции, в которой строки уже заблокированы.
+     *
+     * @param balances новый баланс по ID карты
+     */
+    void updateBalances(Map<Long, BigDecimal> balances);
+
+    /**
+     * Возвращает страницу карт, подходящих под спецификацию, в виде {@link CardSummary}.
+     * ID владельца берётся из {@code owner_id} без соединения с {@code users}.
+     *
+     * @param spec условия отбора
+     * @param pageable пагинация и сортировка по полям карты
+     * @return страница карт
+     */
+    Page<CardSummary> findSummaries(Specification<Card> spec, Pageable pageable);
+
+    /**
+     * Возвращает срез карт, подходящих под спецификацию, без {@code count(*)}:
+     * выбирается на одну карту больше размера страницы, чтобы узнать, есть ли следующая.
+     *
+     * @param spec условия отбора
+     * @param pageable пагинация и сортировка по полям карты
+     * @return срез карт
+     */
+    Slice<CardSummary> findSummarySlice(Specification<Card> spec, Pageable pageable);
+
+    /**
+     * Читает карты, подходящие под спецификацию, курсором JDBC в порядке ID.
+     * Поток нужно закрыть; вызывается внутри транзакции.
+     *
+     * @param spec условия отбора
+     * @return поток карт
+     */
+    Stream<CardSummary> streamSummaries(Specification<Card> spec);
+}
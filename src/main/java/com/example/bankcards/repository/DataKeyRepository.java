@@ -0,0 +1,19 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.DataKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+/**
+ * Репозиторий кольца ключей данных.
+ */
+public interface DataKeyRepository extends JpaRepository<DataKey, Integer> {
+
+    /**
+     * Возвращает самый новый ключ — им шифруются новые номера карт.
+     *
+     * @return активный ключ, если кольцо не пустое
+     */
+    Optional<DataKey> findTopByOrderByIdDesc();
+}
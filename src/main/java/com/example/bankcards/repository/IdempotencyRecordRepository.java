@@ -0,0 +1,104 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.entity.IdempotencyRecordId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Репозиторий для работы с ключами идемпотентности.
+ */
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, IdempotencyRecordId> {
+
+    /**
+     * Регистрирует ключ, если его ещё нет, срок хранения прежней записи истёк
+     * или истекла аренда незавершённого запроса.
+     *
+     * @param username логин пользователя
+     * @param idempotencyKey ключ идемпотентности
+     * @param requestHash отпечаток параметров запроса
+     * @param createdAt время запроса
+     * @param lockedUntil срок аренды ключа этим запросом
+     * @param expiresAt время истечения ключа
+     * @return 1 — ключ зарегистрирован этим вызовом, 0 — действующий ключ уже существует
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO idempotency_keys (username, idempotency_key, request_hash, created_at, locked_until, expires_at)
+            VALUES (:username, :idempotencyKey, :requestHash, :createdAt, :lockedUntil, :expiresAt)
+            ON CONFLICT (username, idempotency_key) DO UPDATE
+                SET request_hash = EXCLUDED.request_hash,
+                    response_status = NULL,
+                    response_message = NULL,
+                    created_at = EXCLUDED.created_at,
+                    locked_until = EXCLUDED.locked_until,
+                    expires_at = EXCLUDED.expires_at
+                WHERE idempotency_keys.expires_at < EXCLUDED.created_at
+                   OR (idempotency_keys.response_status IS NULL
+                       AND idempotency_keys.locked_until < EXCLUDED.created_at)
+            """, nativeQuery = true)
+    int insertIfAbsent(@Param("username") String username,
+                       @Param("idempotencyKey") String idempotencyKey,
+                       @Param("requestHash") String requestHash,
+                       @Param("createdAt") LocalDateTime createdAt,
+                       @Param("lockedUntil") LocalDateTime lockedUntil,
+                       @Param("expiresAt") LocalDateTime expiresAt);
+
+    /**
+     * Сохраняет результат выполнения запроса, если ключ всё ещё арендован этим запросом.
+     * <p>
+     * Выполняется в текущей транзакции, если она есть.
+     *
+     * @param username логин пользователя
+     * @param idempotencyKey ключ идемпотентности
+     * @param lockedUntil срок аренды, полученный при регистрации ключа
+     * @param status HTTP-статус результата
+     * @param message сообщение об ошибке или {@code null}
+     * @return 1 — результат сохранён, 0 — аренду занял другой запрос
+     */
+    @Transactional
+    @Modifying
+    @Query("update IdempotencyRecord r set r.responseStatus = :status, r.responseMessage = :message, " +
+            "r.lockedUntil = null " +
+            "where r.id.username = :username and r.id.idempotencyKey = :idempotencyKey " +
+            "and r.responseStatus is null and r.lockedUntil = :lockedUntil")
+    int complete(@Param("username") String username,
+                 @Param("idempotencyKey") String idempotencyKey,
+                 @Param("lockedUntil") LocalDateTime lockedUntil,
+                 @Param("status") int status,
+                 @Param("message") String message);
+
+    /**
+     * Освобождает ключ, если он всё ещё арендован этим запросом.
+     *
+     * @param username логин пользователя
+     * @param idempotencyKey ключ идемпотентности
+     * @param lockedUntil срок аренды, полученный при регистрации ключа
+     * @return число удалённых записей
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r " +
+            "where r.id.username = :username and r.id.idempotencyKey = :idempotencyKey " +
+            "and r.responseStatus is null and r.lockedUntil = :lockedUntil")
+    int release(@Param("username") String username,
+                @Param("idempotencyKey") String idempotencyKey,
+                @Param("lockedUntil") LocalDateTime lockedUntil);
+
+    /**
+     * Удаляет записи с истёкшим сроком хранения.
+     *
+     * @param now текущее время
+     * @return число удалённых записей
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
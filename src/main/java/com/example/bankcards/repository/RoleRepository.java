@@ -3,6 +3,8 @@ package com.example.bankcards.repository;
 import com.example.bankcards.entity.Role;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -17,4 +19,12 @@ public interface RoleRepository extends JpaRepository<Role, Long> {
      * @return роль, если найдена
      */
     Optional<Role> findByName(String name);
+
+    /**
+     * Находит роли по именам одним запросом.
+     *
+     * @param names имена ролей
+     * @return найденные роли; отсутствующих имён в результате нет
+     */
+    List<Role> findAllByNameIn(Collection<String> names);
 }
@@ -1,22 +1,117 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.Transaction;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * Репозиторий для работы с транзакциями.
  */
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom {
 
     /**
-     * Возвращает все транзакции, связанные с картой:
-     * входящие и исходящие.
+     * Возвращает страницу истории карты, от новых к старым, начиная после позиции
+     * {@code (createdAt, id)}.
+     * <p>
+     * Исходящие и входящие транзакции выбираются двумя диапазонными проходами по индексам
+     * {@code (from_card_id, created_at, id)} и {@code (to_card_id, created_at, id)},
+     * каждый ограничен размером страницы, и объединяются по времени. Стоимость запроса
+     * не зависит от глубины страницы. Перевод карты самой себе попадает в выборку один раз.
+     *
+     * @param cardId ID карты
+     * @param createdAt время создания последней отданной транзакции
+     * @param id ID последней отданной транзакции
+     * @param limit максимальное число строк
+     * @return транзакции, отсортированные по {@code created_at DESC, id DESC}
+     */
+    @Query(value = """
+            SELECT page.* FROM (
+                (SELECT t.* FROM transactions t
+                  WHERE t.from_card_id = :cardId
+                    AND (t.created_at, t.id) < (:createdAt, :id)
+                  ORDER BY t.created_at DESC, t.id DESC
+                  LIMIT :limit)
+                UNION ALL
+                (SELECT t.* FROM transactions t
+                  WHERE t.to_card_id = :cardId
+                    AND t.from_card_id IS DISTINCT FROM :cardId
+                    AND (t.created_at, t.id) < (:createdAt, :id)
+                  ORDER BY t.created_at DESC, t.id DESC
+                  LIMIT :limit)
+            ) page
+            ORDER BY page.created_at DESC, page.id DESC
+            LIMIT :limit
+            """, nativeQuery = true)
+    List<Transaction> findPageByCardId(@Param("cardId") Long cardId,
+                                       @Param("createdAt") LocalDateTime createdAt,
+                                       @Param("id") Long id,
+                                       @Param("limit") int limit);
+
+    /**
+     * Выбирает все транзакции карты за период, от старых к новым, курсором JDBC.
+     * <p>
+     * Строки читаются порциями по {@code fetchSize}, а не целиком, поэтому поток
+     * нужно потреблять внутри транзакции и закрывать. Как и в {@link #findPageByCardId},
+     * исходящие и входящие транзакции берутся диапазонными проходами по двум составным
+     * индексам и сливаются по времени без сортировки.
+     *
+     * @param cardId ID карты
+     * @param from начало периода включительно
+     * @param to конец периода, не включая
+     * @return поток транзакций, отсортированных по {@code created_at, id}
+     */
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = """
+            SELECT period.* FROM (
+                SELECT t.* FROM transactions t
+                 WHERE t.from_card_id = :cardId
+                   AND t.created_at >= :from AND t.created_at < :to
+                UNION ALL
+                SELECT t.* FROM transactions t
+                 WHERE t.to_card_id = :cardId
+                   AND t.from_card_id IS DISTINCT FROM :cardId
+                   AND t.created_at >= :from AND t.created_at < :to
+            ) period
+            ORDER BY period.created_at, period.id
+            """, nativeQuery = true)
+    Stream<Transaction> streamByCardIdAndPeriod(@Param("cardId") Long cardId,
+                                                @Param("from") LocalDateTime from,
+                                                @Param("to") LocalDateTime to);
+
+    /**
+     * Сохраняет завершённый перевод одним запросом, без загрузки карт.
+     * Валюта берётся из карты-отправителя.
      *
      * @param fromCardId ID карты-отправителя
      * @param toCardId ID карты-получателя
-     * @return список транзакций
+     * @param amount сумма
+     * @param description описание операции
+     * @param createdAt время операции
+     * @return число добавленных строк
      */
-    List<Transaction> findByFromCardIdOrToCardId(Long fromCardId, Long toCardId);
+    @Modifying
+    @Query(value = """
+            INSERT INTO transactions (from_card_id, to_card_id, amount, currency, status, description, created_at)
+            SELECT c.id, :toCardId, :amount, c.currency, 'COMPLETED', :description, :createdAt
+              FROM cards c
+             WHERE c.id = :fromCardId
+            """, nativeQuery = true)
+    int insertCompleted(@Param("fromCardId") Long fromCardId,
+                        @Param("toCardId") Long toCardId,
+                        @Param("amount") BigDecimal amount,
+                        @Param("description") String description,
+                        @Param("createdAt") LocalDateTime createdAt);
 }
@@ -0,0 +1,20 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transaction;
+
+import java.util.List;
+
+/**
+ * Пакетные операции над транзакциями через JDBC.
+ */
+public interface TransactionRepositoryCustom {
+
+    /**
+     * Сохраняет транзакции одним пакетом INSERT.
+     * <p>
+     * Сгенерированные ID в сущности не возвращаются.
+     *
+     * @param transactions новые транзакции
+     */
+    void insertAll(List<Transaction> transactions);
+}
@@ -0,0 +1,33 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Transaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@RequiredArgsConstructor
+public class TransactionRepositoryCustomImpl implements TransactionRepositoryCustom {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void insertAll(List<Transaction> transactions) {
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO transactions (from_card_id, to_card_id, amount, currency, status, description, created_at)
+                        VALUES (?, ?, ?, ?, ?, ?, ?)
+                        """,
+                transactions,
+                transactions.size(),
+                (ps, t) -> {
+                    ps.setLong(1, t.getFromCard().getId());
+                    ps.setLong(2, t.getToCard().getId());
+                    ps.setBigDecimal(3, t.getAmount());
+                    ps.setString(4, t.getCurrency());
+                    ps.setString(5, t.getStatus().name());
+                    ps.setString(6, t.getDescription());
+                    ps.setTimestamp(7, Timestamp.valueOf(t.getCreatedAt()));
+                });
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.bankcards.repository;
 
 import com.example.bankcards.entity.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -11,13 +15,24 @@ import java.util.Optional;
 public interface UserRepository extends JpaRepository<User, Long> {
 
     /**
-     * Находит пользователя по имени пользователя.
+     * Находит пользователя по имени пользователя вместе с ролями одним запросом.
      *
      * @param username логин пользователя
      * @return пользователь, если найден
      */
+    @EntityGraph(attributePaths = "roles")
     Optional<User> findByUsername(String username);
 
+    /**
+     * Возвращает всех пользователей вместе с ролями одним запросом,
+     * без отдельного чтения ролей каждого пользователя.
+     *
+     * @return пользователи
+     */
+    @Override
+    @EntityGraph(attributePaths = "roles")
+    List<User> findAll();
+
     /**
      * Проверяет существование пользователя с указанным логином.
      *
@@ -25,4 +40,14 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return {@code true}, если пользователь существует
      */
     Boolean existsByUsername(String username);
+
+    /**
+     * Возвращает текущую версию JWT пользователя одним запросом по первичному ключу,
+     * без загрузки ролей.
+     *
+     * @param id идентификатор пользователя
+     * @return версия, если пользователь существует
+     */
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.id = :id")
+    Optional<Long> findTokenVersionById(@Param("id") Long id);
 }
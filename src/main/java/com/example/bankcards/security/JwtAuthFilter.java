@@ -1,11 +1,16 @@
 package com.example.bankcards.security;
 
+import io.jsonwebtoken.JwtException;
 import io.micrometer.common.util.StringUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.*;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -13,6 +18,9 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.List;
 
 /**
  * JWT-фильтр аутентификации.
@@ -21,7 +29,19 @@ import java.io.IOException;
  * {@code Authorization}, валидирует его и устанавливает аутентификацию
  * в {@link SecurityContextHolder}.</p>
  *
- * <p>Публичные эндпоинты (auth, swagger, api-docs) пропускаются без проверки.</p>
+ * <p>Публичные эндпоинты (auth, swagger, api-docs, actuator/health) пропускаются без проверки.</p>
+ *
+ * <p>При {@code jwt.stateless=true} аутентификация строится из claims токена
+ * без загрузки пользователя и ролей; отзыв токенов после смены прав
+ * проверяется через {@link TokenVersionService}. По умолчанию пользователь и его
+ * текущие роли загружаются на каждый запрос, и смена ролей токен не отзывает.</p>
+ *
+ * <p>{@code /actuator/prometheus} также принимает постоянный токен сборщика метрик
+ * {@code prometheus.scrape-token} (роль {@code ROLE_METRICS}): JWT истекает раньше,
+ * чем Prometheus перечитывает настройки опроса.</p>
+ *
+ * <p>Длительность проверки токена пишется в таймер {@code bank.jwt.verify}
+ * с тегом {@code outcome} ({@code valid} или {@code invalid}).</p>
  */
 @Component
 @RequiredArgsConstructor
@@ -33,8 +53,28 @@ public class JwtAuthFilter extends OncePerRequestFilter {
     /** Имя HTTP-заголовка, содержащего токен */
     public static final String HEADER_NAME = "Authorization";
 
+    /** Эндпоинт опроса метрик Prometheus */
+    public static final String PROMETHEUS_PATH = "/actuator/prometheus";
+
+    /** Роль сборщика метрик */
+    public static final String METRICS_ROLE = "ROLE_METRICS";
+
     private final JwtUtil jwtUtil;
     private final UserDetailsServiceImpl userDetailsService;
+    private final TokenVersionService tokenVersionService;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Аутентификация по данным токена без загрузки пользователя из БД.
+     */
+    @Value("${jwt.stateless:false}")
+    private boolean stateless;
+
+    /**
+     * Постоянный токен сборщика метрик; пустой — не принимается.
+     */
+    @Value("${prometheus.scrape-token:}")
+    private String scrapeToken;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
@@ -47,7 +87,8 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         // Публичные эндпоинты
         if (path.startsWith("/swagger-ui")
                 || path.startsWith("/api-docs")
-                || path.startsWith("/api/auth")) {
+                || path.startsWith("/api/auth")
+                || path.equals("/actuator/health")) {
             filterChain.doFilter(request, response);
             return;
         }
@@ -61,32 +102,54 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
 
         String token = authHeader.substring(BEARER_PREFIX.length());
-        String username;
 
+        if (path.equals(PROMETHEUS_PATH) && isScrapeToken(token)) {
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(
+                    "prometheus", null, List.of(new SimpleGrantedAuthority(METRICS_ROLE))));
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        JwtClaims claims;
+
+        // Подпись и срок действия проверяются одним разбором токена
+        Timer.Sample sample = Timer.start(meterRegistry);
         try {
-            username = jwtUtil.extractUsername(token);
-        } catch (Exception e) {
+            claims = jwtUtil.verify(token);
+            sample.stop(meterRegistry.timer("bank.jwt.verify", "outcome", "valid"));
+        } catch (JwtException | IllegalArgumentException e) {
+            sample.stop(meterRegistry.timer("bank.jwt.verify", "outcome", "invalid"));
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
             return;
         }
 
-        if (StringUtils.isNotEmpty(username)
+        if (StringUtils.isNotEmpty(claims.username())
                 && SecurityContextHolder.getContext().getAuthentication() == null) {
 
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-
-            if (!jwtUtil.isTokenValid(token, userDetails)) {
-                response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-                return;
+            UsernamePasswordAuthenticationToken authToken;
+
+            if (stateless && claims.userId() != null && claims.tokenVersion() != null) {
+                // Пользователь не загружается: достаточно подписи и актуальной версии токена
+                if (!tokenVersionService.isCurrent(claims.userId(), claims.tokenVersion())) {
+                    response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+                    return;
+                }
+                authToken = new UsernamePasswordAuthenticationToken(
+                        claims,
+                        null,
+                        claims.roles().stream().map(SimpleGrantedAuthority::new).toList()
+                );
+            } else {
+                // Роли берутся из БД на каждый запрос, поэтому версия токена не проверяется
+                UserDetails userDetails = userDetailsService.loadUserByUsername(claims.username());
+
+                authToken = new UsernamePasswordAuthenticationToken(
+                        userDetails,
+                        null,
+                        userDetails.getAuthorities()
+                );
             }
 
-            UsernamePasswordAuthenticationToken authToken =
-                    new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            userDetails.getAuthorities()
-                    );
-
             authToken.setDetails(
                     new WebAuthenticationDetailsSource().buildDetails(request)
             );
@@ -96,4 +159,9 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    private boolean isScrapeToken(String token) {
+        return !scrapeToken.isEmpty() && MessageDigest.isEqual(
+                scrapeToken.getBytes(StandardCharsets.UTF_8), token.getBytes(StandardCharsets.UTF_8));
+    }
 }
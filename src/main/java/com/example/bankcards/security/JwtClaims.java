@@ -0,0 +1,27 @@
+package com.example.bankcards.security;
+
+import org.springframework.security.core.AuthenticatedPrincipal;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Проверенные данные JWT-токена.
+ * <p>
+ * В режиме {@code jwt.stateless} служит principal аутентификации вместо
+ * загруженного из БД {@link UserDetailsImpl}.
+ *
+ * @param username имя пользователя (subject)
+ * @param userId ID пользователя или {@code null} для токенов, выданных до появления claim {@code uid}
+ * @param tokenVersion версия токенов пользователя на момент выдачи или {@code null}
+ * @param roles роли пользователя
+ * @param expiresAt момент истечения токена
+ */
+public record JwtClaims(String username, Long userId, Long tokenVersion, Set<String> roles, Instant expiresAt)
+        implements AuthenticatedPrincipal {
+
+    @Override
+    public String getName() {
+        return username;
+    }
+}
@@ -1,9 +1,12 @@
 package com.example.bankcards.security;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
-import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -11,8 +14,8 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
-import java.security.Key;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Date;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -20,11 +23,16 @@ import java.util.stream.Collectors;
 /**
  * Утилитный класс для работы с JWT-токенами.
  *
- * <p>Отвечает за генерацию, парсинг и валидацию JWT.</p>
+ * <p>Отвечает за генерацию и проверку JWT. Ключ подписи и парсер создаются
+ * один раз при старте: парсер неизменяем и потокобезопасен.</p>
  */
 @Component
 public class JwtUtil {
 
+    private static final String ROLES_CLAIM = "roles";
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String TOKEN_VERSION_CLAIM = "tv";
+
     /** Base64-закодированный секретный ключ. */
     @Value("${jwt.secret}")
     private String secret;
@@ -33,17 +41,31 @@ public class JwtUtil {
     @Value("${jwt.expiration-ms}")
     private long expirationMs;
 
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    @PostConstruct
+    void init() {
+        byte[] keyBytes = Base64.getDecoder().decode(secret);
+        signingKey = new SecretKeySpec(keyBytes, SignatureAlgorithm.HS256.getJcaName());
+        parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+    }
+
     /**
      * Получение ключа для подписи токена.
      * @return секретный ключ
      */
     public SecretKey getSigningKey() {
-        byte[] keyBytes = Base64.getDecoder().decode(secret);
-        return new SecretKeySpec(keyBytes, SignatureAlgorithm.HS256.getJcaName());
+        return signingKey;
     }
 
     /**
      * Генерирует JWT для пользователя.
+     * <p>
+     * Для пользователей из БД в токен также записываются ID и версия токенов,
+     * по которым работает аутентификация без загрузки пользователя.
      * @param userDetails данные пользователя
      * @return JWT-токен
      */
@@ -52,66 +74,36 @@ public class JwtUtil {
                 .map(GrantedAuthority::getAuthority)
                 .collect(Collectors.toSet());
 
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setSubject(userDetails.getUsername())
-                .claim("roles", roles)
+                .claim(ROLES_CLAIM, roles);
+        if (userDetails instanceof UserDetailsImpl user) {
+            builder.claim(USER_ID_CLAIM, user.getId())
+                    .claim(TOKEN_VERSION_CLAIM, user.getTokenVersion());
+        }
+        return builder
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expirationMs))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     /**
-     * Извлекает имя пользователя из JWT.
-     * @param token JWT-токен
-     * @return имя пользователя
-     */
-    public String extractUsername(String token) {
-        return extractAllClaims(token).getSubject();
-    }
-
-    /**
-     * Извлекает роли пользователя из JWT.
-     * @param token JWT-токен
-     * @return набор ролей
-     */
-    public Set<String> extractRoles(String token) {
-        return (Set<String>) extractAllClaims(token).get("roles");
-    }
-
-    /**
-     * Проверяет валидность токена.
-     *
-     * @param token       JWT-токен
-     * @param userDetails данные пользователя
-     * @return {@code true}, если токен валиден
-     */
-    public boolean isTokenValid(String token, UserDetails userDetails) {
-        String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
-    }
-
-    /**
-     * Проверяет, истёк ли срок действия токена.
-     *
-     * @param token JWT-токен
-     * @return {@code true}, если токен просрочен
-     */
-    private boolean isTokenExpired(String token) {
-        return extractAllClaims(token).getExpiration().before(new Date());
-    }
-
-    /**
-     * Извлекает все claims из JWT.
+     * Разбирает токен, проверяя подпись и срок действия за один проход.
      *
      * @param token JWT-токен
-     * @return данные
+     * @return данные токена
+     * @throws JwtException если подпись неверна, токен просрочен или повреждён
+     * @throws IllegalArgumentException если токен пустой
      */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    public JwtClaims verify(String token) {
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        Collection<?> roles = claims.get(ROLES_CLAIM, Collection.class);
+        return new JwtClaims(
+                claims.getSubject(),
+                claims.get(USER_ID_CLAIM, Long.class),
+                claims.get(TOKEN_VERSION_CLAIM, Long.class),
+                roles == null ? Set.of() : roles.stream().map(String::valueOf).collect(Collectors.toUnmodifiableSet()),
+                claims.getExpiration().toInstant());
     }
-}
\ No newline at end of file
+}
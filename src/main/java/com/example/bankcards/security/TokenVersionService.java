@@ -0,0 +1,85 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Проверка версии JWT для аутентификации без загрузки пользователя.
+ * <p>
+ * Текущая версия из {@code users.token_version} кэшируется на {@code jwt.token-version-ttl-ms}:
+ * на этом узле изменение прав применяется сразу после коммита, на остальных —
+ * не позже чем через время жизни записи.
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenVersionService {
+
+    private final UserRepository userRepository;
+
+    /**
+     * Время жизни закэшированной версии.
+     */
+    @Value("${jwt.token-version-ttl-ms:5000}")
+    private long ttlMs;
+
+    private final Map<Long, CachedVersion> versions = new ConcurrentHashMap<>();
+
+    /**
+     * Закэшированная версия.
+     *
+     * @param version версия токенов пользователя
+     * @param loadedAt момент загрузки по {@link System#nanoTime()}
+     */
+    private record CachedVersion(long version, long loadedAt) {
+    }
+
+    /**
+     * Проверяет, что токен выдан с текущей версией пользователя.
+     *
+     * @param userId ID пользователя из токена
+     * @param tokenVersion версия из токена
+     * @return {@code false}, если версия устарела или пользователь удалён
+     */
+    public boolean isCurrent(Long userId, long tokenVersion) {
+        long now = System.nanoTime();
+        CachedVersion cached = versions.get(userId);
+        if (cached == null || now - cached.loadedAt() > ttlMs * 1_000_000) {
+            Optional<Long> current = userRepository.findTokenVersionById(userId);
+            if (current.isEmpty()) {
+                versions.remove(userId);
+                return false;
+            }
+            cached = new CachedVersion(current.get(), now);
+            versions.put(userId, cached);
+        }
+        return cached.version() == tokenVersion;
+    }
+
+    /**
+     * Сбрасывает закэшированную версию после коммита изменения прав.
+     *
+     * @param event событие изменения прав пользователя
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        versions.remove(event.userId());
+    }
+
+    /**
+     * Удаляет устаревшие записи, чтобы кэш не рос на неактивных пользователях.
+     */
+    @Scheduled(fixedDelayString = "${jwt.token-version-ttl-ms:5000}")
+    public void sweepExpired() {
+        long now = System.nanoTime();
+        versions.values().removeIf(cached -> now - cached.loadedAt() > ttlMs * 1_000_000);
+    }
+}
@@ -7,19 +7,33 @@ import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
  * Реализация {@link UserDetails} на основе сущности {@link User}.
  *
- * <p>Используется Spring Security для аутентификации и авторизации.</p>
+ * <p>Используется Spring Security для аутентификации и авторизации.
+ * Хранит неизменяемый снимок пользователя и его ролей, а не саму сущность,
+ * поэтому безопасно кэшируется между запросами.</p>
  */
 public class UserDetailsImpl implements UserDetails {
 
-    private final User user;
+    private final Long id;
+    private final String username;
+    private final String password;
+    private final long tokenVersion;
+    private final Set<GrantedAuthority> authorities;
 
     public UserDetailsImpl(User user) {
-        this.user = user;
+        this.id = user.getId();
+        this.username = user.getUsername();
+        this.password = user.getPassword();
+        this.tokenVersion = user.getTokenVersion();
+        this.authorities = user.getRoles().stream()
+                .map(Role::getName)
+                .map(SimpleGrantedAuthority::new)
+                .collect(Collectors.toUnmodifiableSet());
     }
 
     /**
@@ -27,14 +41,25 @@ public class UserDetailsImpl implements UserDetails {
      */
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return user.getRoles().stream()
-                .map(Role::getName)
-                .map(SimpleGrantedAuthority::new)
-                .collect(Collectors.toSet());
+        return authorities;
+    }
+
+    /**
+     * Возвращает ID пользователя.
+     */
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * Возвращает текущую версию JWT пользователя.
+     */
+    public long getTokenVersion() {
+        return tokenVersion;
     }
 
-    @Override public String getPassword() { return user.getPassword(); }
-    @Override public String getUsername() { return user.getUsername(); }
+    @Override public String getPassword() { return password; }
+    @Override public String getUsername() { return username; }
     @Override public boolean isEnabled() { return true; }
     @Override public boolean isAccountNonExpired() { return true; }
     @Override public boolean isAccountNonLocked() { return true; }
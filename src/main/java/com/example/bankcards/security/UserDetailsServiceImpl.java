@@ -2,21 +2,64 @@ package com.example.bankcards.security;
 
 import com.example.bankcards.entity.User;
 import com.example.bankcards.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
 
 /**
  * Сервис загрузки пользователей для Spring Security.
  *
  * <p>Используется при аутентификации для получения данных пользователя
- * из базы данных.</p>
+ * из базы данных. Загруженные пользователи кэшируются на
+ * {@code user-details-cache.ttl-ms}; изменение прав пользователя сбрасывает
+ * его запись после коммита. Статистика кэша публикуется в метриках
+ * {@code cache.*} с тегом {@code cache=userDetails}, длительность загрузки
+ * с учётом кэша — в таймере {@code bank.user.load}.</p>
  */
 @Service
 @RequiredArgsConstructor
 public class UserDetailsServiceImpl implements UserDetailsService {
 
     private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Время жизни записи кэша.
+     */
+    @Value("${user-details-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    /**
+     * Максимальное число пользователей в кэше.
+     */
+    @Value("${user-details-cache.max-size:10000}")
+    private long maxSize;
+
+    private Cache<String, UserDetails> cache;
+
+    private Timer loadTimer;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
+        loadTimer = meterRegistry.timer("bank.user.load");
+    }
 
     /**
      * Загружает пользователя по имени пользователя.
@@ -27,9 +70,23 @@ public class UserDetailsServiceImpl implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) {
+        return loadTimer.record(() -> cache.get(username, this::loadFromDatabase));
+    }
+
+    /**
+     * Сбрасывает кэшированного пользователя после коммита изменения его прав.
+     *
+     * @param event событие изменения прав пользователя
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        cache.invalidate(event.username());
+    }
+
+    private UserDetails loadFromDatabase(String username) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException(username));
 
         return new UserDetailsImpl(user);
     }
-}
\ No newline at end of file
+}
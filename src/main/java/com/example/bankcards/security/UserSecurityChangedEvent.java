@@ -0,0 +1,11 @@
+package com.example.bankcards.security;
+
+/**
+ * Событие изменения прав пользователя: ролей или самого пользователя.
+ * Ранее выданные ему JWT и закэшированные данные должны перестать использоваться.
+ *
+ * @param userId идентификатор пользователя
+ * @param username логин пользователя
+ */
+public record UserSecurityChangedEvent(Long userId, String username) {
+}
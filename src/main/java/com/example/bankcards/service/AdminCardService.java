@@ -1,5 +1,7 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardFilterRequest;
+import com.example.bankcards.dto.CardSummary;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
@@ -9,26 +11,33 @@ import com.example.bankcards.exception.NoCardBlockRequestException;
 import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
-import com.example.bankcards.util.EncryptionUtils;
 import com.example.bankcards.util.CardUtils;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Сервис административного управления банковскими картами.
  *
  * <p>Позволяет администратору создавать, активировать, блокировать
- * и удалять карты, а также просматривать все карты в системе.</p>
+ * и удалять карты, а также просматривать и выгружать все карты в системе.</p>
  */
 @Service
 @RequiredArgsConstructor
 public class AdminCardService {
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
+    private final CardEncryptionService cardEncryptionService;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Создаёт новую банковскую карту для пользователя.
@@ -36,7 +45,7 @@ public class AdminCardService {
      * <p>В процессе:
      * <ul>
      *   <li>генерируется номер карты</li>
-     *   <li>номер шифруется AES</li>
+     *   <li>номер шифруется активным ключом данных ({@link CardEncryptionService})</li>
      *   <li>сохраняются последние 4 цифры PAN</li>
      * </ul>
      *
@@ -59,19 +68,17 @@ public class AdminCardService {
         // Сохранение последних 4-ех символов номера карты
         String pan_last4 = rawCardNumber.substring(rawCardNumber.length() - 4);
 
-        // Генерация AES-ключа
-        String aesKey = EncryptionUtils.generateAesKey();
-
-        String encryptedNumber = EncryptionUtils.encrypt(rawCardNumber, aesKey);
+        // Шифрование номера активным ключом данных
+        CardEncryptionService.EncryptedPan encryptedNumber = cardEncryptionService.encryptPan(rawCardNumber);
 
         Card card = new Card();
-        card.setEncryptedNumber(encryptedNumber);
+        card.setEncryptedNumber(encryptedNumber.ciphertext());
+        card.setKeyId(encryptedNumber.keyId());
         card.setOwner(user);
         card.setExpiry(LocalDate.now().plusYears(expiresInYears));
         card.setStatus(CardStatus.ACTIVE);
         card.setBalance(balance);
         card.setMaskedNumber(CardUtils.maskCardNumber(pan_last4));
-        card.setAesKey(aesKey);
         card.setPanLast4(pan_last4);
 
         return cardRepository.save(card);
@@ -83,6 +90,7 @@ public class AdminCardService {
      * @param cardId идентификатор карты
      * @throws NoCardBlockRequestException если не было запроса на блокировку
      */
+    @Transactional
     public void blockCard(Long cardId) {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new CardNotFoundException(cardId));
@@ -93,6 +101,7 @@ public class AdminCardService {
 
         card.setStatus(CardStatus.BLOCKED);
         cardRepository.save(card);
+        eventPublisher.publishEvent(new CardChangedEvent(cardId));
     }
 
     /**
@@ -100,12 +109,14 @@ public class AdminCardService {
      *
      * @param cardId идентификатор карты
      */
+    @Transactional
     public void activateCard(Long cardId) {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new CardNotFoundException(cardId));
 
         card.setStatus(CardStatus.ACTIVE);
         cardRepository.save(card);
+        eventPublisher.publishEvent(new CardChangedEvent(cardId));
     }
 
     /**
@@ -113,20 +124,43 @@ public class AdminCardService {
      *
      * @param cardId идентификатор карты
      */
+    @Transactional
     public void deleteCard(Long cardId) {
         cardRepository.deleteById(cardId);
+        eventPublisher.publishEvent(new CardChangedEvent(cardId));
     }
 
     /**
-     * Возвращает список всех карт в системе в замаскированном виде.
+     * Возвращает страницу карт системы с фильтрацией.
+     * Карты выбираются проекцией {@link CardSummary}: владельцы не загружаются.
      *
-     * @return список карт
+     * @param filter критерии фильтрации
+     * @param ownerId ID владельца или {@code null} для всех карт
+     * @param pageable параметры пагинации
+     * @return страница карт
      */
-    public List<Card> getAllCards() {
-        List<Card> cards = cardRepository.findAll();
-        cards.forEach(card ->
-                card.setMaskedNumber(CardUtils.maskCardNumber(card.getPanLast4()))
-        );
-        return cards;
+    public Page<CardSummary> getCards(CardFilterRequest filter, Long ownerId, Pageable pageable) {
+        return cardRepository.findSummaries(spec(filter, ownerId), pageable);
+    }
+
+    /**
+     * Передаёт карты системы с фильтрацией по одной, в порядке ID.
+     * <p>
+     * Карты читаются курсором JDBC порциями и не попадают в контекст персистентности,
+     * поэтому потребление памяти не зависит от числа карт.
+     *
+     * @param filter критерии фильтрации
+     * @param ownerId ID владельца или {@code null} для всех карт
+     * @param action обработчик карты
+     */
+    @Transactional(readOnly = true)
+    public void streamCards(CardFilterRequest filter, Long ownerId, Consumer<CardSummary> action) {
+        try (Stream<CardSummary> rows = cardRepository.streamSummaries(spec(filter, ownerId))) {
+            rows.forEach(action);
+        }
+    }
+
+    private static Specification<Card> spec(CardFilterRequest filter, Long ownerId) {
+        return CardFilter.ownerId(ownerId).and(CardFilter.matching(filter));
     }
 }
\ No newline at end of file
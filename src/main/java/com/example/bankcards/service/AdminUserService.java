@@ -10,7 +10,9 @@ import com.example.bankcards.exception.UserAlreadyExistsException;
 import com.example.bankcards.exception.UserNotFoundException;
 import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserSecurityChangedEvent;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,6 +21,7 @@ import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Сервис административного управления пользователями.
@@ -32,6 +35,7 @@ public class AdminUserService {
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
     /**
      * Создаёт нового пользователя.
@@ -74,6 +78,7 @@ public class AdminUserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new UserNotFoundException(userId));
         user.setRoles(resolveRoles(request.getRoles()));
+        revokeTokens(user);
         userRepository.save(user);
     }
 
@@ -90,6 +95,7 @@ public class AdminUserService {
         Role role = roleRepository.findByName(roleName)
                 .orElseThrow(() -> new RoleNotFoundException(roleName));
         user.getRoles().add(role);
+        revokeTokens(user);
         userRepository.save(user);
     }
 
@@ -106,6 +112,7 @@ public class AdminUserService {
         Role role = roleRepository.findByName(roleName)
                 .orElseThrow(() -> new RoleNotFoundException(roleName));
         user.getRoles().remove(role);
+        revokeTokens(user);
         userRepository.save(user);
     }
 
@@ -116,26 +123,38 @@ public class AdminUserService {
      */
     @Transactional
     public void deleteUser(Long userId) {
-        if (!userRepository.existsById(userId)) {
-            throw new UserNotFoundException(userId);
-        }
-        userRepository.deleteById(userId);
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new UserNotFoundException(userId));
+        userRepository.delete(user);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(userId, user.getUsername()));
+    }
+
+    /**
+     * Отзывает выданные пользователю JWT и сбрасывает его кэшированные данные:
+     * в режиме {@code jwt.stateless} токены с прежней версией перестают приниматься.
+     *
+     * @param user пользователь
+     */
+    private void revokeTokens(User user) {
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        eventPublisher.publishEvent(new UserSecurityChangedEvent(user.getId(), user.getUsername()));
     }
 
     /**
-     * Разрешает роли
+     * Разрешает роли одним запросом
      * @param roleNames набор ролей
-     * @return
+     * @return роли
+     * @throws RoleNotFoundException если какой-либо роли нет
      */
     private Set<Role> resolveRoles(Set<String> roleNames) {
         if (roleNames == null || roleNames.isEmpty()) {
             throw new RolesIsEmptyException();
         }
-        Set<Role> roles = new HashSet<>();
-        for (String rn : roleNames) {
-            Role r = roleRepository.findByName(rn)
-                    .orElseThrow(() -> new RoleNotFoundException(rn));
-            roles.add(r);
+        Set<Role> roles = new HashSet<>(roleRepository.findAllByNameIn(roleNames));
+        if (roles.size() < roleNames.size()) {
+            Set<String> found = roles.stream().map(Role::getName).collect(Collectors.toSet());
+            String missing = roleNames.stream().filter(rn -> !found.contains(rn)).findFirst().orElseThrow();
+            throw new RoleNotFoundException(missing);
         }
         return roles;
     }
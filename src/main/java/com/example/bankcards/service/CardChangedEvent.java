@@ -0,0 +1,10 @@
+package com.example.bankcards.service;
+
+/**
+ * Событие изменения статуса или удаления карты.
+ * Закэшированные данные карты должны перестать использоваться.
+ *
+ * @param cardId идентификатор карты
+ */
+public record CardChangedEvent(Long cardId) {
+}
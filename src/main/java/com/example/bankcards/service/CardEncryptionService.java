@@ -0,0 +1,296 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.DataKey;
+import com.example.bankcards.exception.AESDecryptionException;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.DataKeyRepository;
+import com.example.bankcards.util.EncryptionUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.SecretKey;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Сервис шифрования номеров карт по схеме envelope encryption.
+ * <p>
+ * Номера шифруются ключами данных из небольшого кольца в таблице {@code data_keys};
+ * ключи хранятся обёрнутыми мастер-ключом {@code encryption.master-key}, а на карте
+ * сохраняется только ID ключа. Развёрнутые ключи кэшируются в памяти, поэтому
+ * расшифровка не декодирует ключ заново. Новые номера шифруются самым новым ключом кольца.
+ * <p>
+ * Устаревшие карты с собственным ключом в {@code cards.aes_key} или с номером в режиме ECB
+ * читаются как прежде и перешифровываются ключом кольца при старте приложения.
+ */
+@Service
+@RequiredArgsConstructor
+public class CardEncryptionService {
+
+    /** Размер порции перешифровки, совпадает с {@code LIMIT} в {@code findLegacyEncryptedAfter}. */
+    private static final int REENCRYPT_BATCH_SIZE = 500;
+
+    private final DataKeyRepository dataKeyRepository;
+    private final CardRepository cardRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Мастер-ключ (Base64, AES-256), которым обёрнуты ключи данных.
+     */
+    @Value("${encryption.master-key}")
+    private String masterKey;
+
+    /**
+     * Перешифровывать ли устаревшие карты при старте.
+     */
+    @Value("${encryption.reencrypt-legacy-on-startup:true}")
+    private boolean reencryptLegacyOnStartup = true;
+
+    /**
+     * Начиная с какого числа карт номера расшифровываются параллельно.
+     * Для маленьких страниц передача задач в другие потоки дороже самой расшифровки.
+     */
+    @Value("${encryption.parallel-decrypt-threshold:64}")
+    private int parallelDecryptThreshold = 64;
+
+    /**
+     * На сколько частей делится большая страница; по умолчанию — по числу ядер.
+     */
+    @Value("${encryption.decrypt-parallelism:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}")
+    private int decryptParallelism = Runtime.getRuntime().availableProcessors();
+
+    private final Map<Integer, SecretKey> keys = new ConcurrentHashMap<>();
+
+    /**
+     * Защищает выбор активного ключа. Внутри — запросы к БД, а {@code synchronized}
+     * закрепил бы виртуальный поток за носителем на время запроса.
+     */
+    private final ReentrantLock activeKeyLock = new ReentrantLock();
+
+    /**
+     * Виртуальные потоки для частей страницы. Число одновременных задач ограничено
+     * {@code decryptParallelism} на запрос, а расшифровка занимает не больше потоков-носителей,
+     * чем ядер.
+     */
+    private final ExecutorService decryptExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private volatile Integer activeKeyId;
+
+    /**
+     * Зашифрованный номер карты.
+     *
+     * @param keyId ID ключа данных
+     * @param ciphertext зашифрованный номер
+     */
+    public record EncryptedPan(Integer keyId, String ciphertext) {
+    }
+
+    /**
+     * Шифрует номер карты активным ключом кольца.
+     *
+     * @param pan номер карты
+     * @return зашифрованный номер и ID ключа
+     */
+    public EncryptedPan encryptPan(String pan) {
+        Integer keyId = activeKeyId();
+        return new EncryptedPan(keyId, EncryptionUtils.encrypt(pan, key(keyId)));
+    }
+
+    /**
+     * Расшифровывает номер карты.
+     *
+     * @param card карта
+     * @return номер карты
+     */
+    public String decryptPan(Card card) {
+        return EncryptionUtils.decrypt(card.getEncryptedNumber(), cardKey(card));
+    }
+
+    /**
+     * Расшифровывает номера страницы карт.
+     * <p>
+     * Ключи разворачиваются заранее в вызывающем потоке, поэтому задачи не обращаются к БД.
+     * Страницы от {@code encryption.parallel-decrypt-threshold} карт делятся на
+     * {@code encryption.decrypt-parallelism} частей; первая часть расшифровывается в вызывающем потоке, остальные — в виртуальных потоках.
+     *
+     * @param cards карты
+     * @return номера карт в том же порядке
+     */
+    public List<String> decryptPans(List<Card> cards) {
+        int size = cards.size();
+        SecretKey[] cardKeys = new SecretKey[size];
+        for (int i = 0; i < size; i++) {
+            cardKeys[i] = cardKey(cards.get(i));
+        }
+        String[] pans = new String[size];
+        if (size < parallelDecryptThreshold || decryptParallelism <= 1) {
+            decryptRange(cards, cardKeys, pans, 0, size);
+            return Arrays.asList(pans);
+        }
+
+        int chunk = (size + decryptParallelism - 1) / decryptParallelism;
+        List<Future<?>> futures = new ArrayList<>(decryptParallelism - 1);
+        for (int from = chunk; from < size; from += chunk) {
+            int start = from;
+            int end = Math.min(from + chunk, size);
+            futures.add(decryptExecutor.submit(() -> decryptRange(cards, cardKeys, pans, start, end)));
+        }
+        decryptRange(cards, cardKeys, pans, 0, chunk);
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw new AESDecryptionException(e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AESDecryptionException("расшифровка прервана");
+            }
+        }
+        return Arrays.asList(pans);
+    }
+
+    /**
+     * Добавляет в кольцо новый ключ данных; дальше новые номера шифруются им.
+     * Ранее зашифрованные номера остаются читаемыми своими ключами.
+     *
+     * @return ID нового ключа
+     */
+    public Integer rotate() {
+        activeKeyLock.lock();
+        try {
+            activeKeyId = createDataKey();
+            return activeKeyId;
+        } finally {
+            activeKeyLock.unlock();
+        }
+    }
+
+    /**
+     * Перешифровывает ключом кольца в режиме AES-GCM карты, у которых номер зашифрован
+     * собственным ключом или прежним режимом ECB, и удаляет собственный ключ из строки.
+     * <p>
+     * Версия строки увеличивается, как при условном списании и зачислении: оптимистический
+     * перевод, загрузивший карту до перешифровки, получит конфликт версий и повторится,
+     * а не запишет прежний номер поверх нового. Номер, ключ и его ID всегда записываются вместе.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reencryptLegacyCards() {
+        if (!reencryptLegacyOnStartup) {
+            return;
+        }
+        long lastId = 0;
+        List<Card> batch;
+        do {
+            batch = cardRepository.findLegacyEncryptedAfter(lastId);
+            List<Object[]> args = new ArrayList<>(batch.size());
+            for (Card card : batch) {
+                EncryptedPan pan = encryptPan(decryptPan(card));
+                args.add(new Object[]{pan.ciphertext(), pan.keyId(), card.getId(), card.getEncryptedNumber()});
+                lastId = card.getId();
+            }
+            if (!args.isEmpty()) {
+                jdbcTemplate.batchUpdate("""
+                        UPDATE cards SET encrypted_number = ?, key_id = ?, aes_key = NULL, version = version + 1
+                         WHERE id = ? AND encrypted_number = ?
+                        """, args);
+            }
+        } while (batch.size() == REENCRYPT_BATCH_SIZE);
+    }
+
+    /**
+     * Останавливает запуск, если мастер-ключ не является AES-256 ключом в Base64,
+     * например, когда {@code ENCRYPTION_MASTER_KEY} задана пустой.
+     */
+    @PostConstruct
+    void checkMasterKey() {
+        byte[] decoded;
+        try {
+            decoded = Base64.getDecoder().decode(masterKey);
+        } catch (IllegalArgumentException e) {
+            decoded = new byte[0];
+        }
+        if (decoded.length != 32) {
+            throw new IllegalStateException(
+                    "encryption.master-key должен быть AES-256 ключом в Base64 (переменная окружения ENCRYPTION_MASTER_KEY)");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        decryptExecutor.shutdownNow();
+    }
+
+    private static void decryptRange(List<Card> cards, SecretKey[] cardKeys, String[] pans, int from, int to) {
+        for (int i = from; i < to; i++) {
+            pans[i] = EncryptionUtils.decrypt(cards.get(i).getEncryptedNumber(), cardKeys[i]);
+        }
+    }
+
+    private SecretKey cardKey(Card card) {
+        if (card.getKeyId() == null) {
+            return EncryptionUtils.decodeKey(card.getAesKey());
+        }
+        return key(card.getKeyId());
+    }
+
+    private Integer activeKeyId() {
+        Integer id = activeKeyId;
+        if (id != null) {
+            return id;
+        }
+        activeKeyLock.lock();
+        try {
+            if (activeKeyId == null) {
+                activeKeyId = dataKeyRepository.findTopByOrderByIdDesc()
+                        .map(DataKey::getId)
+                        .orElseGet(this::createDataKey);
+            }
+            return activeKeyId;
+        } finally {
+            activeKeyLock.unlock();
+        }
+    }
+
+    private SecretKey key(Integer keyId) {
+        SecretKey cached = keys.get(keyId);
+        if (cached != null) {
+            return cached;
+        }
+        // Не computeIfAbsent: он держит монитор корзины на время запроса к БД.
+        // Одновременные промахи развернут ключ дважды, сохранится первый
+        DataKey dataKey = dataKeyRepository.findById(keyId)
+                .orElseThrow(() -> new AESDecryptionException("ключ данных " + keyId + " не найден"));
+        SecretKey key = EncryptionUtils.unwrapKey(dataKey.getWrappedKey(), EncryptionUtils.decodeKey(masterKey));
+        SecretKey existing = keys.putIfAbsent(keyId, key);
+        return existing != null ? existing : key;
+    }
+
+    private Integer createDataKey() {
+        SecretKey key = EncryptionUtils.generateDataKey();
+        DataKey dataKey = dataKeyRepository.save(DataKey.builder()
+                .wrappedKey(EncryptionUtils.wrapKey(key, EncryptionUtils.decodeKey(masterKey)))
+                .createdAt(LocalDateTime.now())
+                .build());
+        keys.put(dataKey.getId(), key);
+        return dataKey.getId();
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardFilterRequest;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import org.springframework.data.jpa.domain.Specification;
@@ -9,11 +10,33 @@ import java.math.BigDecimal;
 /**
  * Набор спецификаций для фильтрации карт.
  *
- * <p>Используется при поиске карт пользователя
- * с помощью Spring Data JPA Specifications.</p>
+ * <p>Используется при поиске карт пользователя и в административных
+ * списках карт с помощью Spring Data JPA Specifications.</p>
  */
 public class CardFilter {
 
+    /**
+     * Условия из параметров запроса: статус и границы баланса.
+     *
+     * @param filter критерии фильтрации, может быть {@code null}
+     */
+    public static Specification<Card> matching(CardFilterRequest filter) {
+        Specification<Card> spec = Specification.where(null);
+        if (filter == null) {
+            return spec;
+        }
+        if (filter.getStatus() != null)
+            spec = spec.and(hasStatus(filter.getStatus()));
+
+        if (filter.getMinBalance() != null)
+            spec = spec.and(balanceGreaterThan(filter.getMinBalance()));
+
+        if (filter.getMaxBalance() != null)
+            spec = spec.and(balanceLessThan(filter.getMaxBalance()));
+
+        return spec;
+    }
+
     /**
      * Фильтр по статусу карты.
      *
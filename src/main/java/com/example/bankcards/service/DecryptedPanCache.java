@@ -0,0 +1,168 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.security.UserSecurityChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Кэш расшифрованных номеров карт с коротким временем жизни (свойство {@code pan-cache}).
+ * <p>
+ * Повторные запросы номера одной карты, например во время оплаты, не расшифровывают
+ * его заново. Номера хранятся вне кучи, в direct {@link ByteBuffer}, а не в строках, и
+ * затираются нулями при истечении срока, удалении карты или смене её статуса
+ * ({@link CardChangedEvent}), а также при изменении прав владельца.
+ * По умолчанию выключен: {@link #get} просто вызывает загрузчик.
+ */
+@Service
+public class DecryptedPanCache {
+
+    @Value("${pan-cache.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * Время жизни номера в кэше.
+     */
+    @Value("${pan-cache.ttl-ms:30000}")
+    private long ttlMs = 30_000;
+
+    /**
+     * Максимальное число номеров; при заполнении новые номера не кэшируются до очистки.
+     */
+    @Value("${pan-cache.max-size:10000}")
+    private int maxSize = 10_000;
+
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Номер карты вне кучи.
+     *
+     * @param pan байты номера в UTF-8
+     * @param ownerId ID владельца карты
+     * @param expiresAt момент истечения по {@link System#nanoTime()}
+     */
+    private record Entry(ByteBuffer pan, Long ownerId, long expiresAt) {
+
+        void zero() {
+            pan.clear();
+            while (pan.hasRemaining()) {
+                pan.put((byte) 0);
+            }
+        }
+    }
+
+    /**
+     * Возвращает номер карты из кэша или загружает и кэширует его.
+     *
+     * @param cardId ID карты
+     * @param ownerId ID владельца карты
+     * @param loader расшифровка номера при промахе
+     * @return номер карты
+     */
+    public String get(Long cardId, Long ownerId, Supplier<String> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        String cached = read(cardId);
+        if (cached != null) {
+            return cached;
+        }
+        String pan = loader.get();
+        if (entries.size() < maxSize) {
+            put(cardId, ownerId, pan);
+        }
+        return pan;
+    }
+
+    /**
+     * Затирает номер карты после коммита изменения её статуса или удаления.
+     *
+     * @param event событие изменения карты
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCardChanged(CardChangedEvent event) {
+        invalidate(event.cardId());
+    }
+
+    /**
+     * Затирает номера карт пользователя после изменения его прав или удаления.
+     *
+     * @param event событие изменения прав пользователя
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserSecurityChanged(UserSecurityChangedEvent event) {
+        entries.forEach((cardId, entry) -> {
+            if (entry.ownerId().equals(event.userId())) {
+                invalidate(cardId);
+            }
+        });
+    }
+
+    /**
+     * Затирает номера с истёкшим сроком.
+     */
+    @Scheduled(fixedDelayString = "${pan-cache.sweep-interval-ms:5000}")
+    public void sweepExpired() {
+        long now = System.nanoTime();
+        entries.forEach((cardId, entry) -> {
+            if (now - entry.expiresAt() >= 0) {
+                entries.computeIfPresent(cardId, (id, current) -> current == entry ? zeroed(current) : current);
+            }
+        });
+    }
+
+    @PreDestroy
+    void clear() {
+        entries.keySet().forEach(this::invalidate);
+    }
+
+    /**
+     * Копирует номер из буфера под блокировкой записи карты,
+     * чтобы он не был затёрт посреди чтения.
+     */
+    private String read(Long cardId) {
+        String[] pan = new String[1];
+        entries.computeIfPresent(cardId, (id, entry) -> {
+            if (System.nanoTime() - entry.expiresAt() >= 0) {
+                return zeroed(entry);
+            }
+            byte[] bytes = new byte[entry.pan().capacity()];
+            entry.pan().get(0, bytes);
+            pan[0] = new String(bytes, StandardCharsets.UTF_8);
+            Arrays.fill(bytes, (byte) 0);
+            return entry;
+        });
+        return pan[0];
+    }
+
+    private void put(Long cardId, Long ownerId, String pan) {
+        byte[] bytes = pan.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(0, bytes);
+        Arrays.fill(bytes, (byte) 0);
+        Entry entry = new Entry(buffer, ownerId, System.nanoTime() + ttlMs * 1_000_000);
+        entries.merge(cardId, entry, (previous, next) -> {
+            previous.zero();
+            return next;
+        });
+    }
+
+    private void invalidate(Long cardId) {
+        entries.computeIfPresent(cardId, (id, entry) -> zeroed(entry));
+    }
+
+    private static Entry zeroed(Entry entry) {
+        entry.zero();
+        return null;
+    }
+}
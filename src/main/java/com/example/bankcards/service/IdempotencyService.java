@@ -0,0 +1,234 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.entity.IdempotencyRecordId;
+import com.example.bankcards.exception.*;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Сервис идемпотентного выполнения запросов по заголовку {@code Idempotency-Key}.
+ * <p>
+ * Первый запрос с ключом арендует его в таблице {@code idempotency_keys}
+ * и выполняет операцию; её результат (успех или бизнес-ошибка) сохраняется.
+ * Успех записывается в транзакции самой операции, поэтому он сохранён тогда и только тогда,
+ * когда операция зафиксирована. После временной ошибки ({@link RetryableAppException})
+ * или непредвиденного сбоя ключ освобождается, и повтор с ним выполняет операцию заново.
+ * Если процесс остановился, не сохранив результат, ключ освобождается по истечении аренды.
+ * Повторный запрос с тем же ключом получает сохранённый результат без повторного
+ * выполнения операции. Завершённые результаты дополнительно кэшируются в памяти,
+ * чтобы повторы не обращались к базе.
+ */
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 100;
+    private static final int MAX_MESSAGE_LENGTH = 1024;
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+
+    /**
+     * Время хранения ключа.
+     */
+    @Value("${idempotency.ttl-ms:86400000}")
+    private long ttlMs;
+
+    /**
+     * Срок аренды ключа выполняющимся запросом.
+     */
+    @Value("${idempotency.lease-ms:30000}")
+    private long leaseMs;
+
+    /**
+     * Максимальное число завершённых результатов в кэше.
+     */
+    @Value("${idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    private final Map<String, Outcome> cache = new ConcurrentHashMap<>();
+    private final Queue<String> cacheOrder = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Сохранённый результат запроса.
+     *
+     * @param requestHash отпечаток параметров запроса
+     * @param status HTTP-статус результата
+     * @param message сообщение об ошибке или {@code null} для успеха
+     * @param expiresAt момент истечения ключа
+     */
+    private record Outcome(String requestHash, int status, String message, LocalDateTime expiresAt) {
+    }
+
+    /**
+     * Выполняет операцию не более одного раза для пары пользователь + ключ.
+     * <p>
+     * Операция получает действие, сохраняющее успешный результат, и должна выполнить его
+     * в своей транзакции перед фиксацией. Если аренду ключа за это время занял другой запрос,
+     * действие бросает {@link IdempotencyKeyInProgressException} и транзакция откатывается.
+     *
+     * @param username логин пользователя
+     * @param key ключ идемпотентности
+     * @param fingerprint параметры запроса; повтор ключа с другими параметрами отклоняется
+     * @param action операция; принимает действие, сохраняющее успешный результат
+     * @return {@code true}, если возвращён сохранённый успешный результат без выполнения операции
+     * @throws InvalidIdempotencyKeyException если ключ пустой или слишком длинный
+     * @throws IdempotencyKeyInProgressException если запрос с этим ключом ещё выполняется
+     * @throws IdempotencyKeyReuseException если ключ использован с другими параметрами
+     * @throws IdempotentReplayException если сохранённый результат — ошибка
+     */
+    public boolean execute(String username, String key, String fingerprint, Consumer<Runnable> action) {
+        if (key == null || key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new InvalidIdempotencyKeyException();
+        }
+        String requestHash = sha256(fingerprint);
+        String cacheKey = username + '\u0000' + key;
+
+        // Точность TIMESTAMP в PostgreSQL — микросекунды: срок аренды сравнивается на равенство
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+        Outcome cached = cache.get(cacheKey);
+        if (cached != null && cached.expiresAt().isAfter(now)) {
+            return replay(cached, key, requestHash);
+        }
+
+        LocalDateTime lockedUntil = now.plusNanos(leaseMs * 1_000_000);
+        LocalDateTime expiresAt = now.plusNanos(ttlMs * 1_000_000);
+        if (idempotencyRecordRepository.insertIfAbsent(username, key, requestHash, now, lockedUntil, expiresAt) == 0) {
+            IdempotencyRecord existing = idempotencyRecordRepository
+                    .findById(new IdempotencyRecordId(username, key))
+                    .orElseThrow(() -> new IdempotencyKeyInProgressException(key));
+            if (existing.getResponseStatus() == null) {
+                throw new IdempotencyKeyInProgressException(key);
+            }
+            Outcome stored = new Outcome(existing.getRequestHash(), existing.getResponseStatus(),
+                    existing.getResponseMessage(), existing.getExpiresAt());
+            remember(cacheKey, stored);
+            return replay(stored, key, requestHash);
+        }
+
+        Outcome success = new Outcome(requestHash, HttpStatus.NO_CONTENT.value(), null, expiresAt);
+        try {
+            action.accept(() -> {
+                if (!store(username, key, lockedUntil, success)) {
+                    throw new IdempotencyKeyInProgressException(key);
+                }
+            });
+        } catch (RetryableAppException e) {
+            // Клиенту предложено повторить запрос: ключ освобождается, результат не сохраняется
+            release(username, key, lockedUntil, e);
+            throw e;
+        } catch (AppException e) {
+            completeFailed(cacheKey, username, key, lockedUntil,
+                    new Outcome(requestHash, e.getStatus().value(), e.getMessage(), expiresAt), e);
+            throw e;
+        } catch (AccessDeniedException e) {
+            completeFailed(cacheKey, username, key, lockedUntil,
+                    new Outcome(requestHash, HttpStatus.FORBIDDEN.value(), e.getMessage(), expiresAt), e);
+            throw e;
+        } catch (RuntimeException e) {
+            // Исход неизвестен клиенту, а транзакция операции откатилась: освобождаем ключ для повтора
+            release(username, key, lockedUntil, e);
+            throw e;
+        }
+        remember(cacheKey, success);
+        return false;
+    }
+
+    /**
+     * Удаляет ключи с истёкшим сроком хранения.
+     */
+    @Scheduled(fixedDelayString = "${idempotency.sweep-interval-ms:600000}")
+    public void sweepExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        idempotencyRecordRepository.deleteExpired(now);
+        cache.values().removeIf(outcome -> !outcome.expiresAt().isAfter(now));
+        cacheOrder.removeIf(cacheKey -> !cache.containsKey(cacheKey));
+    }
+
+    private boolean replay(Outcome outcome, String key, String requestHash) {
+        if (!outcome.requestHash().equals(requestHash)) {
+            throw new IdempotencyKeyReuseException(key);
+        }
+        HttpStatus status = HttpStatus.valueOf(outcome.status());
+        if (status.is2xxSuccessful()) {
+            return true;
+        }
+        throw new IdempotentReplayException(outcome.message(), status);
+    }
+
+    /**
+     * Сохраняет результат, если ключ всё ещё арендован этим запросом.
+     */
+    private boolean store(String username, String key, LocalDateTime lockedUntil, Outcome outcome) {
+        String message = outcome.message();
+        if (message != null && message.length() > MAX_MESSAGE_LENGTH) {
+            message = message.substring(0, MAX_MESSAGE_LENGTH);
+        }
+        return idempotencyRecordRepository.complete(username, key, lockedUntil, outcome.status(), message) == 1;
+    }
+
+    /**
+     * Сохраняет ошибку операции. Сбой записи не подменяет ошибку операции:
+     * он добавляется к ней как подавленный, а ключ освободится по истечении аренды.
+     */
+    private void completeFailed(String cacheKey, String username, String key, LocalDateTime lockedUntil,
+                                Outcome outcome, RuntimeException failure) {
+        try {
+            if (store(username, key, lockedUntil, outcome)) {
+                remember(cacheKey, outcome);
+            }
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    /**
+     * Освобождает ключ. Сбой удаления добавляется к ошибке операции как подавленный.
+     */
+    private void release(String username, String key, LocalDateTime lockedUntil, RuntimeException failure) {
+        try {
+            idempotencyRecordRepository.release(username, key, lockedUntil);
+        } catch (RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    private void remember(String cacheKey, Outcome outcome) {
+        if (cache.put(cacheKey, outcome) == null) {
+            cacheOrder.add(cacheKey);
+        }
+        while (cache.size() > cacheSize) {
+            String eldest = cacheOrder.poll();
+            if (eldest == null) {
+                break;
+            }
+            cache.remove(eldest);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 недоступен", e);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Позиция в истории транзакций карты: ключ {@code (created_at, id)}
+ * последней отданной записи.
+ * <p>
+ * Клиенту передаётся в виде непрозрачной строки base64url.
+ *
+ * @param createdAt время создания последней транзакции страницы
+ * @param id ID последней транзакции страницы
+ */
+public record TransactionCursor(LocalDateTime createdAt, Long id) {
+
+    /**
+     * Позиция перед самой новой транзакцией — начало истории.
+     */
+    public static final TransactionCursor FIRST = new TransactionCursor(
+            LocalDateTime.of(9999, 12, 31, 23, 59, 59), Long.MAX_VALUE);
+
+    /**
+     * Позиция сразу после указанной транзакции.
+     *
+     * @param transaction последняя транзакция страницы
+     * @return курсор следующей страницы
+     */
+    public static TransactionCursor after(Transaction transaction) {
+        return new TransactionCursor(transaction.getCreatedAt(), transaction.getId());
+    }
+
+    /**
+     * Кодирует курсор в непрозрачную строку.
+     *
+     * @return строка курсора
+     */
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Разбирает строку курсора.
+     *
+     * @param cursor строка курсора или {@code null} для первой страницы
+     * @return позиция в истории
+     * @throws InvalidCursorException если строка не является курсором
+     */
+    public static TransactionCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf('|');
+            if (separator < 0) {
+                throw new InvalidCursorException();
+            }
+            return new TransactionCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException();
+        }
+    }
+}
@@ -5,13 +5,21 @@ import com.example.bankcards.entity.Transaction;
 import com.example.bankcards.entity.TransactionStatus;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.TransactionRepository;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * Сервис управления транзакциями.
@@ -25,6 +33,11 @@ public class TransactionService {
 
     private final TransactionRepository transactionRepository;
     private final CardRepository cardRepository;
+    private final EntityManager entityManager;
+
+    /** Максимальное число транзакций в непостраничной истории карты. */
+    @Value("${transactions.history-limit:1000}")
+    private int historyLimit = 1000;
 
     /**
      * Сохраняет транзакцию между картами.
@@ -49,6 +62,27 @@ public class TransactionService {
         transactionRepository.save(t);
     }
 
+    /**
+     * Сохраняет завершённый перевод по ID карт одним INSERT, без загрузки сущностей.
+     *
+     * @param fromCardId ID карты-отправителя
+     * @param toCardId ID карты-получателя
+     * @param amount сумма
+     * @param description описание операции
+     */
+    public void saveTransfer(Long fromCardId, Long toCardId, BigDecimal amount, String description) {
+        transactionRepository.insertCompleted(fromCardId, toCardId, amount, description, LocalDateTime.now());
+    }
+
+    /**
+     * Сохраняет транзакции одним пакетным INSERT.
+     *
+     * @param transactions новые транзакции
+     */
+    public void saveTransactions(List<Transaction> transactions) {
+        transactionRepository.insertAll(transactions);
+    }
+
     /**
      * Проверяет, принадлежит ли карта пользователю.
      * @param cardId идентификатор карты
@@ -56,28 +90,83 @@ public class TransactionService {
      * @return {@code true}, если карта принадлежит пользователю
      */
     public boolean isCardOwnedByUser(Long cardId, String username) {
-        return cardRepository.findById(cardId)
-                .map(c -> c.getOwner().getUsername().equals(username))
-                .orElse(false);
+        return cardRepository.existsByIdAndOwnerUsername(cardId, username);
     }
 
     /**
+     * Проверяет, что карта принадлежит пользователю.
      *
+     * @param cardId идентификатор карты
+     * @param username имя пользователя
+     * @throws AccessDeniedException если карта не принадлежит пользователю
+     */
+    public void checkCardOwnedByUser(Long cardId, String username) {
+        if (!isCardOwnedByUser(cardId, username)) {
+            throw new AccessDeniedException("Вы не можете смотреть транзакции других пользователей");
+        }
+    }
+
+    /**
+     * Возвращает страницу истории транзакций карты пользователя, от новых к старым.
      *
+     * @param username имя пользователя
+     * @param cardId идентификатор карты
+     * @param cursor позиция, после которой начинается страница
+     * @param size размер страницы
+     * @return транзакции страницы и признак наличия следующей
      * @throws AccessDeniedException если карта не принадлежит пользователю
      */
+    public Slice<Transaction> getUserCardTransactionsPage(String username, Long cardId,
+                                                          TransactionCursor cursor, int size) {
+        checkCardOwnedByUser(cardId, username);
+        List<Transaction> rows = transactionRepository.findPageByCardId(
+                cardId, cursor.createdAt(), cursor.id(), size + 1);
+        boolean hasNext = rows.size() > size;
+        List<Transaction> content = hasNext ? rows.subList(0, size) : rows;
+        return new SliceImpl<>(content, PageRequest.ofSize(size), hasNext);
+    }
 
     /**
-     * Возвращает список всех транзакций (входящие и исходящие) по карте пользователя.
+     * Возвращает последние транзакции (входящие и исходящие) по карте пользователя,
+     * от новых к старым.
+     * <p>
+     * Число строк ограничено {@code transactions.history-limit}; полная история
+     * доступна постранично через {@link #getUserCardTransactionsPage}.
+     *
      * @param username имя пользователя
      * @param cardId идентификатор карты
      * @return список транзакций
      * @throws AccessDeniedException если карта не принадлежит пользователю
      */
     public List<Transaction> getUserCardTransactions(String username, Long cardId) {
-        if (!isCardOwnedByUser(cardId, username)) {
-            throw new AccessDeniedException("Вы не можете смотреть транзакции других пользователей");
+        checkCardOwnedByUser(cardId, username);
+        TransactionCursor latest = TransactionCursor.FIRST;
+        return transactionRepository.findPageByCardId(cardId, latest.createdAt(), latest.id(), historyLimit);
+    }
+
+    /**
+     * Передаёт транзакции карты пользователя за период, от старых к новым, по одной.
+     * <p>
+     * Строки читаются курсором JDBC порциями и отсоединяются от контекста персистентности
+     * после обработки, поэтому потребление памяти не зависит от размера выписки.
+     * Соединение с БД занято, пока обработчик не получит последнюю строку.
+     *
+     * @param username имя пользователя
+     * @param cardId идентификатор карты
+     * @param from начало периода включительно
+     * @param to конец периода, не включая
+     * @param action обработчик транзакции
+     * @throws AccessDeniedException если карта не принадлежит пользователю
+     */
+    @Transactional(readOnly = true)
+    public void streamUserCardTransactions(String username, Long cardId, LocalDateTime from, LocalDateTime to,
+                                           Consumer<Transaction> action) {
+        checkCardOwnedByUser(cardId, username);
+        try (Stream<Transaction> rows = transactionRepository.streamByCardIdAndPeriod(cardId, from, to)) {
+            rows.forEach(t -> {
+                action.accept(t);
+                entityManager.detach(t);
+            });
         }
-        return transactionRepository.findByFromCardIdOrToCardId(cardId, cardId);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,26 @@
+package com.example.bankcards.service;
+
+/**
+ * Стратегия согласования балансов при переводе между картами.
+ */
+public enum TransferMode {
+
+    /**
+     * Строки обеих карт блокируются {@code SELECT ... FOR UPDATE}
+     * в порядке возрастания ID на всё время транзакции.
+     */
+    PESSIMISTIC,
+
+    /**
+     * Карты читаются без блокировок, конфликт обнаруживается по версии строки
+     * при коммите, после чего перевод повторяется с задержкой.
+     */
+    OPTIMISTIC,
+
+    /**
+     * Балансы меняются условными {@code UPDATE} без загрузки сущностей:
+     * списание проходит, только если карта активна, принадлежит пользователю
+     * и на ней достаточно средств. Перевод занимает три SQL-запроса.
+     */
+    CONDITIONAL_UPDATE
+}
@@ -1,22 +1,31 @@
 package com.example.bankcards.service;
 
-import com.example.bankcards.dto.CardFilterRequest;
-import com.example.bankcards.entity.Card;
-import com.example.bankcards.entity.CardStatus;
-import com.example.bankcards.entity.User;
+import com.example.bankcards.dto.*;
+import com.example.bankcards.entity.*;
 import com.example.bankcards.exception.*;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
-import com.example.bankcards.util.CardUtils;
-import com.example.bankcards.util.EncryptionUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Сервис работы пользователя со своими картами.
@@ -30,42 +39,49 @@ public class UserCardService {
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
     private final TransactionService transactionService;
+    private final TransactionTemplate transactionTemplate;
+    private final CardEncryptionService cardEncryptionService;
+    private final DecryptedPanCache decryptedPanCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    /** Стратегия согласования балансов при переводе. */
+    @Value("${transfer.mode:PESSIMISTIC}")
+    private TransferMode transferMode = TransferMode.PESSIMISTIC;
+
+    /** Максимальное число попыток перевода в режиме {@link TransferMode#OPTIMISTIC}. */
+    @Value("${transfer.optimistic.max-attempts:5}")
+    private int optimisticMaxAttempts = 5;
+
+    /** Базовая задержка между попытками в миллисекундах. */
+    @Value("${transfer.optimistic.backoff-ms:10}")
+    private long optimisticBackoffMs = 10;
 
     /**
      * Возвращает карты пользователя с фильтрацией и пагинацией.
-     * Автоматически маскирует номера карт для безопасности.
+     * <p>
+     * Карты выбираются проекцией {@link CardSummary} без зашифрованного номера и ключа,
+     * в транзакции только для чтения: сущности не загружаются и не проверяются на изменения.
      *
      * @param username имя пользователя
      * @param filter критерии фильтрации
      * @param pageable параметры пагинации
-     * @return страница с замаскированными картами
+     * @param withTotal посчитать общее число карт отдельным {@code count(*)};
+     *                  иначе возвращается {@link Slice} без итогов
+     * @return страница карт; номер доступен в замаскированном виде
      * @throws UserNotFoundException если пользователь не найден
      */
-    public Page<Card> getUserCards(String username, CardFilterRequest filter, Pageable pageable) {
+    @Transactional(readOnly = true)
+    public Slice<CardSummary> getUserCards(String username, CardFilterRequest filter, Pageable pageable,
+                                           boolean withTotal) {
         User user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UserNotFoundException(username));
 
-        Specification<Card> spec = CardFilter.ownerId(user.getId());
-
-        if (filter != null) {
-            if (filter.getStatus() != null)
-                spec = spec.and(CardFilter.hasStatus(filter.getStatus()));
-
-            if (filter.getMinBalance() != null)
-                spec = spec.and(CardFilter.balanceGreaterThan(filter.getMinBalance()));
-
-            if (filter.getMaxBalance() != null)
-                spec = spec.and(CardFilter.balanceLessThan(filter.getMaxBalance()));
-        }
+        Specification<Card> spec = CardFilter.ownerId(user.getId()).and(CardFilter.matching(filter));
 
-        Page<Card> cards = cardRepository.findAll(spec, pageable);
-
-        // Маскируем номера карт
-        cards.forEach(card ->
-                card.setMaskedNumber(CardUtils.maskCardNumber(card.getPanLast4()))
-        );
-
-        return cards;
+        return withTotal
+                ? cardRepository.findSummaries(spec, pageable)
+                : cardRepository.findSummarySlice(spec, pageable);
     }
 
     /**
@@ -73,16 +89,22 @@ public class UserCardService {
      *
      * @param username владелец карт
      * @param pageable пагинация
+     * @param withTotal посчитать общее число карт отдельным {@code count(*)};
+     *                  иначе возвращается {@link Slice} без итогов
      * @return карты с расшифрованными номерами в поле decryptedNumber
      */
-    public Page<Card> getDecryptedPanUserCards(String username, Pageable pageable) {
+    public Slice<Card> getDecryptedPanUserCards(String username, Pageable pageable, boolean withTotal) {
         var user = userRepository.findByUsername(username)
                 .orElseThrow(() -> new UserNotFoundException(username));
-        Page<Card> cards = cardRepository.findAllByOwner(user, pageable);
+        Slice<Card> cards = withTotal
+                ? cardRepository.findAllByOwner(user, pageable)
+                : cardRepository.findSliceByOwner(user, pageable);
 
-        cards.forEach(card ->
-                card.setDecryptedNumber(EncryptionUtils.decrypt(card.getEncryptedNumber(), card.getAesKey()))
-        );
+        List<Card> content = cards.getContent();
+        List<String> pans = cardEncryptionService.decryptPans(content);
+        for (int i = 0; i < content.size(); i++) {
+            content.get(i).setDecryptedNumber(pans.get(i));
+        }
         return cards;
     }
 
@@ -93,6 +115,7 @@ public class UserCardService {
      * @param cardId ID карты
      * @return карта с расшифрованным номером
      */
+    @Transactional(readOnly = true)
     public Card getDecryptedPanUserCard(String username, Long cardId) {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new CardNotFoundException(cardId));
@@ -100,7 +123,8 @@ public class UserCardService {
         if (!card.getOwner().getUsername().equals(username)) {
             throw new AccessDeniedException("Это не ваша карта");
         }
-        card.setDecryptedNumber(EncryptionUtils.decrypt(card.getEncryptedNumber(), card.getAesKey()));
+        card.setDecryptedNumber(decryptedPanCache.get(card.getId(), card.getOwner().getId(),
+                () -> cardEncryptionService.decryptPan(card)));
 
         return card;
     }
@@ -110,26 +134,327 @@ public class UserCardService {
      * Проверяет: положительная сумма, существование карт, принадлежность пользователю, достаточность средств.
      * Обновляет балансы и создаёт транзакцию.
      *
+     * <p>Способ защиты от параллельных изменений задаётся свойством {@code transfer.mode}:</p>
+     * <ul>
+     *   <li>{@link TransferMode#PESSIMISTIC} — обе карты блокируются {@code SELECT ... FOR UPDATE}
+     *   в порядке возрастания ID, поэтому переводы по одним и тем же картам выполняются
+     *   последовательно и без deadlock;</li>
+     *   <li>{@link TransferMode#OPTIMISTIC} — карты читаются без блокировок, при конфликте версий
+     *   перевод повторяется с экспоненциальной задержкой и случайным разбросом.
+     *   Повторы работают, только если метод вызван вне внешней транзакции;</li>
+     *   <li>{@link TransferMode#CONDITIONAL_UPDATE} — списание и зачисление выполняются
+     *   условными {@code UPDATE} без загрузки карт, перевод занимает три SQL-запроса.</li>
+     * </ul>
+     *
+     * <p>Длительность перевода публикуется в таймере {@code bank.transfer} с тегами
+     * {@code mode} и {@code outcome} ({@code success}, {@code insufficient_funds},
+     * {@code access_denied} и др.), ожидание блокировок карт — в {@code bank.transfer.lock.wait}.</p>
+     *
      * @param username имя владельца карт
      * @param fromCardId карта-источник
      * @param toCardId карта-получатель
      * @param amount сумма (должна быть > 0)
+     * @throws CardNotActiveException если карта-источник не активна
+     * @throws ConcurrentCardUpdateException если исчерпаны попытки в оптимистическом режиме
      */
     public void transferBetweenCards(String username, Long fromCardId, Long toCardId, BigDecimal amount) {
+        transferBetweenCards(username, fromCardId, toCardId, amount, () -> { });
+    }
+
+    /**
+     * Перевод между картами пользователя, см. {@link #transferBetweenCards(String, Long, Long, BigDecimal)}.
+     *
+     * @param inTransaction действие, выполняемое в транзакции перевода перед её фиксацией,
+     *                      например сохранение результата по ключу идемпотентности
+     */
+    public void transferBetweenCards(String username, Long fromCardId, Long toCardId, BigDecimal amount,
+                                     Runnable inTransaction) {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new NegativeTransferAmountException();
         }
 
-        Card fromCard = cardRepository.findById(fromCardId)
-                .orElseThrow(() -> new CardNotFoundException(fromCardId));
-        Card toCard = cardRepository.findById(toCardId)
-                .orElseThrow(() -> new CardNotFoundException(toCardId));
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            switch (transferMode) {
+                case OPTIMISTIC -> transferWithRetry(username, fromCardId, toCardId, amount, inTransaction);
+                case CONDITIONAL_UPDATE ->
+                        transferWithConditionalUpdates(username, fromCardId, toCardId, amount, inTransaction);
+                default -> transactionTemplate.executeWithoutResult(status -> {
+                    applyTransfer(username, lockCards(List.of(fromCardId, toCardId)), fromCardId, toCardId, amount);
+                    inTransaction.run();
+                });
+            }
+            outcome = "success";
+        } catch (RuntimeException e) {
+            outcome = transferOutcome(e);
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("bank.transfer", "mode", transferMode.name(), "outcome", outcome));
+        }
+    }
+
+    /**
+     * Блокирует карты {@code SELECT ... FOR UPDATE}; время до получения строк,
+     * включая ожидание чужих блокировок, пишется в таймер {@code bank.transfer.lock.wait}.
+     */
+    private List<Card> lockCards(Collection<Long> ids) {
+        return meterRegistry.timer("bank.transfer.lock.wait")
+                .record(() -> cardRepository.findAllByIdForUpdate(ids));
+    }
+
+    /**
+     * Значение тега {@code outcome} для неуспешного перевода.
+     */
+    private static String transferOutcome(RuntimeException e) {
+        if (e instanceof InsufficientFundsException) {
+            return "insufficient_funds";
+        }
+        if (e instanceof AccessDeniedException) {
+            return "access_denied";
+        }
+        if (e instanceof CardNotActiveException) {
+            return "card_not_active";
+        }
+        if (e instanceof CardNotFoundException) {
+            return "card_not_found";
+        }
+        if (e instanceof ConcurrentCardUpdateException) {
+            return "conflict";
+        }
+        return "error";
+    }
+
+    /**
+     * Перевод условными {@code UPDATE}: списание, зачисление и запись транзакции.
+     *
+     * <p>Строки обновляются в порядке возрастания ID, как и при блокировке
+     * {@code SELECT ... FOR UPDATE}, поэтому встречные переводы не дают deadlock.
+     * Если условие не выполнено, причина определяется дополнительным чтением карты,
+     * а транзакция откатывается.</p>
+     */
+    private void transferWithConditionalUpdates(String username, Long fromCardId, Long toCardId, BigDecimal amount,
+                                                Runnable inTransaction) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (fromCardId <= toCardId) {
+                debit(username, fromCardId, amount);
+                credit(username, toCardId, amount);
+            } else {
+                credit(username, toCardId, amount);
+                debit(username, fromCardId, amount);
+            }
+            transactionService.saveTransfer(fromCardId, toCardId, amount, "Transfer between user cards");
+            inTransaction.run();
+        });
+    }
+
+    private void debit(String username, Long cardId, BigDecimal amount) {
+        if (cardRepository.debitIfSufficient(cardId, username, amount) == 1) {
+            return;
+        }
+        Card card = findOwnedCard(username, cardId);
+        if (card.getStatus() != CardStatus.ACTIVE) {
+            throw new CardNotActiveException(cardId, card.getStatus().toString());
+        }
+        throw new InsufficientFundsException();
+    }
+
+    private void credit(String username, Long cardId, BigDecimal amount) {
+        if (cardRepository.credit(cardId, username, amount) == 0) {
+            findOwnedCard(username, cardId);
+        }
+    }
+
+    /**
+     * Загружает карту и проверяет, что она принадлежит пользователю.
+     */
+    private Card findOwnedCard(String username, Long cardId) {
+        Card card = cardRepository.findById(cardId)
+                .orElseThrow(() -> new CardNotFoundException(cardId));
+        if (!card.getOwner().getUsername().equals(username)) {
+            throw new AccessDeniedException("Переводы возможны только между своими картами");
+        }
+        return card;
+    }
+
+    /**
+     * Оптимистический перевод: повторяет транзакцию при конфликте версий карт.
+     */
+    private void transferWithRetry(String username, Long fromCardId, Long toCardId, BigDecimal amount,
+                                   Runnable inTransaction) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    applyTransfer(username, cardRepository.findAllById(List.of(fromCardId, toCardId)),
+                            fromCardId, toCardId, amount);
+                    inTransaction.run();
+                });
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= optimisticMaxAttempts) {
+                    throw new ConcurrentCardUpdateException();
+                }
+                backOff(attempt);
+            }
+        }
+    }
+
+    /**
+     * Пауза перед повтором: случайное значение от нуля до
+     * экспоненциально растущей границы (full jitter).
+     */
+    private void backOff(int attempt) {
+        long bound = optimisticBackoffMs << Math.min(attempt - 1, 10);
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(bound + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrentCardUpdateException();
+        }
+    }
+
+    /**
+     * Выполняет пакет переводов между картами пользователя в одной транзакции.
+     * <p>
+     * Все карты пакета загружаются одним запросом и блокируются в порядке ID,
+     * переводы применяются к балансам в памяти по порядку, после чего новые балансы
+     * и записи о транзакциях сохраняются пакетными JDBC-запросами.
+     * Пакет всегда использует пессимистичные блокировки, независимо от {@code transfer.mode}.
+     *
+     * @param username имя пользователя
+     * @param transfers переводы в порядке применения
+     * @param mode режим применения пакета
+     * @return результаты переводов в порядке запроса
+     * @throws UserNotFoundException если пользователь не найден
+     */
+    public List<BatchTransferItemResult> transferBatch(String username,
+                                                       List<TransferRequest> transfers,
+                                                       BatchTransferMode mode) {
+        Long userId = userRepository.findByUsername(username)
+                .orElseThrow(() -> new UserNotFoundException(username))
+                .getId();
+
+        return transactionTemplate.execute(status -> {
+            Set<Long> ids = new TreeSet<>();
+            transfers.forEach(t -> {
+                ids.add(t.getFromCardId());
+                ids.add(t.getToCardId());
+            });
+            Map<Long, Card> cards = lockCards(ids).stream()
+                    .collect(Collectors.toMap(Card::getId, Function.identity()));
+
+            Map<Long, BigDecimal> balances = new TreeMap<>();
+            List<Transaction> ledger = new ArrayList<>(transfers.size());
+            List<BatchTransferItemResult> results = new ArrayList<>(transfers.size());
+            LocalDateTime now = LocalDateTime.now();
+
+            for (int i = 0; i < transfers.size(); i++) {
+                TransferRequest transfer = transfers.get(i);
+                try {
+                    Card fromCard = cards.get(transfer.getFromCardId());
+                    Card toCard = cards.get(transfer.getToCardId());
+                    checkTransfer(userId, fromCard, toCard, transfer);
+
+                    BigDecimal fromBalance = balances.getOrDefault(fromCard.getId(), fromCard.getBalance());
+                    if (fromBalance.compareTo(transfer.getAmount()) < 0) {
+                        throw new InsufficientFundsException();
+                    }
+                    balances.put(fromCard.getId(), fromBalance.subtract(transfer.getAmount()));
+                    balances.put(toCard.getId(),
+                            balances.getOrDefault(toCard.getId(), toCard.getBalance()).add(transfer.getAmount()));
+
+                    ledger.add(Transaction.builder()
+                            .fromCard(fromCard)
+                            .toCard(toCard)
+                            .amount(transfer.getAmount())
+                            .currency(fromCard.getCurrency())
+                            .description("Batch transfer between user cards")
+                            .status(TransactionStatus.COMPLETED)
+                            .createdAt(now)
+                            .build());
+                    results.add(BatchTransferItemResult.builder()
+                            .index(i)
+                            .status(BatchTransferItemStatus.COMPLETED)
+                            .build());
+                } catch (AppException e) {
+                    results.add(failed(i, e.getStatus().value(), e.getMessage()));
+                } catch (AccessDeniedException e) {
+                    results.add(failed(i, HttpStatus.FORBIDDEN.value(), e.getMessage()));
+                }
+            }
+
+            boolean anyFailed = results.stream().anyMatch(r -> r.getStatus() == BatchTransferItemStatus.FAILED);
+            if (mode == BatchTransferMode.ALL_OR_NOTHING && anyFailed) {
+                results.stream()
+                        .filter(r -> r.getStatus() == BatchTransferItemStatus.COMPLETED)
+                        .forEach(r -> r.setStatus(BatchTransferItemStatus.ROLLED_BACK));
+                return results;
+            }
+
+            if (!ledger.isEmpty()) {
+                cardRepository.updateBalances(balances);
+                transactionService.saveTransactions(ledger);
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Проверяет перевод пакета без учёта баланса.
+     */
+    private void checkTransfer(Long userId, Card fromCard, Card toCard, TransferRequest transfer) {
+        if (transfer.getAmount() == null || transfer.getAmount().compareTo(BigDecimal.ZERO) <= 0) {
+            throw new NegativeTransferAmountException();
+        }
+        if (fromCard == null) {
+            throw new CardNotFoundException(transfer.getFromCardId());
+        }
+        if (toCard == null) {
+            throw new CardNotFoundException(transfer.getToCardId());
+        }
+        if (!fromCard.getOwner().getId().equals(userId) || !toCard.getOwner().getId().equals(userId)) {
+            throw new AccessDeniedException("Переводы возможны только между своими картами");
+        }
+        if (fromCard.getStatus() != CardStatus.ACTIVE) {
+            throw new CardNotActiveException(fromCard.getId(), fromCard.getStatus().toString());
+        }
+    }
+
+    private static BatchTransferItemResult failed(int index, int code, String error) {
+        return BatchTransferItemResult.builder()
+                .index(index)
+                .status(BatchTransferItemStatus.FAILED)
+                .code(code)
+                .error(error)
+                .build();
+    }
+
+    /**
+     * Проверяет условия перевода и изменяет балансы загруженных карт.
+     * Изменения сохраняются при коммите текущей транзакции.
+     */
+    private void applyTransfer(String username, List<Card> loaded, Long fromCardId, Long toCardId, BigDecimal amount) {
+        Map<Long, Card> cards = loaded.stream()
+                .collect(Collectors.toMap(Card::getId, Function.identity()));
+
+        Card fromCard = cards.get(fromCardId);
+        if (fromCard == null) {
+            throw new CardNotFoundException(fromCardId);
+        }
+        Card toCard = cards.get(toCardId);
+        if (toCard == null) {
+            throw new CardNotFoundException(toCardId);
+        }
 
         if (!fromCard.getOwner().getUsername().equals(username) ||
                 !toCard.getOwner().getUsername().equals(username)) {
             throw new AccessDeniedException("Переводы возможны только между своими картами");
         }
 
+        if (fromCard.getStatus() != CardStatus.ACTIVE) {
+            throw new CardNotActiveException(fromCardId, fromCard.getStatus().toString());
+        }
+
         if (fromCard.getBalance().compareTo(amount) < 0) {
             throw new InsufficientFundsException();
         }
@@ -137,9 +462,6 @@ public class UserCardService {
         fromCard.setBalance(fromCard.getBalance().subtract(amount));
         toCard.setBalance(toCard.getBalance().add(amount));
 
-        cardRepository.save(fromCard);
-        cardRepository.save(toCard);
-
         transactionService.saveTransaction(
                 fromCard,
                 toCard,
@@ -157,6 +479,7 @@ public class UserCardService {
      * @param username имя владельца карты
      * @return текущий баланс
      */
+    @Transactional(readOnly = true)
     public BigDecimal getBalanceByCard(Long cardId, String username) {
         var card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new CardNotFoundException(cardId));
@@ -175,6 +498,7 @@ public class UserCardService {
      * @param cardId ID карты
      * @param username владелец карты
      */
+    @Transactional
     public void requestBlockCard(Long cardId, String username) {
         Card card = cardRepository.findById(cardId)
                 .orElseThrow(() -> new CardNotFoundException(cardId));
@@ -189,5 +513,6 @@ public class UserCardService {
 
         card.setStatus(CardStatus.PENDING_BLOCK);
         cardRepository.save(card);
+        eventPublisher.publishEvent(new CardChangedEvent(cardId));
     }
 }
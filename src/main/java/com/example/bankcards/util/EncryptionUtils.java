@@ -3,19 +3,56 @@ package com.example.bankcards.util;
 import com.example.bankcards.exception.AESDecryptionException;
 import com.example.bankcards.exception.AESEncryptionException;
 import com.example.bankcards.exception.AESKeyGenerationException;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import lombok.experimental.UtilityClass;
 
 import javax.crypto.Cipher;
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
 import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 /**
  * Утилиты для AES шифрования.
+ * <p>
+ * Новые значения шифруются AES-256-GCM и хранятся как {@code gcm1:} + Base64(nonce | шифртекст | тег).
+ * Значения без префикса зашифрованы прежним режимом ECB и по-прежнему расшифровываются.
+ * <p>
+ * Длительность шифрования и расшифровки пишется в таймер {@code bank.crypto} с тегом
+ * {@code operation} глобального реестра {@link Metrics}, к которому Spring Boot
+ * подключает реестры приложения.
  */
 @UtilityClass
 public class EncryptionUtils {
+
+    private static final String GCM_PREFIX = "gcm1:";
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final String ECB_TRANSFORMATION = "AES/ECB/PKCS5Padding";
+    private static final int GCM_NONCE_LENGTH = 12;
+    private static final int GCM_TAG_BITS = 128;
+    private static final int CIPHER_POOL_SIZE = 64;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private static final Timer ENCRYPT_TIMER = Metrics.timer("bank.crypto", "operation", "encrypt");
+    private static final Timer DECRYPT_TIMER = Metrics.timer("bank.crypto", "operation", "decrypt");
+
+    /**
+     * Пулы готовых экземпляров {@link Cipher}: {@code Cipher.getInstance} ищет провайдера
+     * на каждом вызове. Пул общий, а не {@link ThreadLocal}: виртуальные потоки
+     * короткоживущие, и шифр на поток не переиспользовался бы. Очередь на
+     * {@code ReentrantLock} не закрепляет виртуальный поток за носителем.
+     */
+    private static final BlockingQueue<Cipher> GCM_CIPHERS = new ArrayBlockingQueue<>(CIPHER_POOL_SIZE);
+    private static final BlockingQueue<Cipher> ECB_CIPHERS = new ArrayBlockingQueue<>(CIPHER_POOL_SIZE);
+
     /**
      * Генерирует AES-256 ключ.
      * @return Base64 ключ
@@ -32,20 +69,92 @@ public class EncryptionUtils {
     }
 
     /**
-     * Шифрует строку AES-256.
+     * Генерирует AES-256 ключ данных.
+     * @return ключ
+     */
+    public SecretKey generateDataKey() {
+        try {
+            KeyGenerator keyGen = KeyGenerator.getInstance("AES");
+            keyGen.init(256);
+            return keyGen.generateKey();
+        } catch (Exception e) {
+            throw new AESKeyGenerationException(e.getMessage());
+        }
+    }
+
+    /**
+     * Восстанавливает AES-ключ из Base64.
+     * @param base64Key Base64 ключ
+     * @return ключ
+     */
+    public SecretKey decodeKey(String base64Key) {
+        return new SecretKeySpec(Base64.getDecoder().decode(base64Key), "AES");
+    }
+
+    /**
+     * Оборачивает ключ данных мастер-ключом (AES Key Wrap, RFC 3394).
+     * @param key ключ данных
+     * @param masterKey мастер-ключ
+     * @return обёрнутый ключ в Base64
+     */
+    public String wrapKey(SecretKey key, SecretKey masterKey) {
+        try {
+            Cipher cipher = Cipher.getInstance("AESWrap");
+            cipher.init(Cipher.WRAP_MODE, masterKey);
+            return Base64.getEncoder().encodeToString(cipher.wrap(key));
+        } catch (Exception e) {
+            throw new AESEncryptionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Разворачивает ключ данных мастер-ключом.
+     * @param wrappedKey обёрнутый ключ в Base64
+     * @param masterKey мастер-ключ
+     * @return ключ данных
+     */
+    public SecretKey unwrapKey(String wrappedKey, SecretKey masterKey) {
+        try {
+            Cipher cipher = Cipher.getInstance("AESWrap");
+            cipher.init(Cipher.UNWRAP_MODE, masterKey);
+            return (SecretKey) cipher.unwrap(Base64.getDecoder().decode(wrappedKey), "AES", Cipher.SECRET_KEY);
+        } catch (Exception e) {
+            throw new AESDecryptionException(e.getMessage());
+        }
+    }
+
+    /**
+     * Шифрует строку AES-256-GCM.
      * @param value строка для шифрования
      * @param base64Key Base64 ключ
-     * @return зашифрованная Base64 строка
+     * @return {@code gcm1:} и Base64 от nonce, шифртекста и тега
      */
     public String encrypt(String value, String base64Key) {
-        try {
-            SecretKeySpec keySpec = new SecretKeySpec(Base64.getDecoder().decode(base64Key), "AES");
+        return encrypt(value, decodeKey(base64Key));
+    }
 
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec);
+    /**
+     * Шифрует строку AES-256-GCM со случайным 12-байтовым nonce.
+     * @param value строка для шифрования
+     * @param key ключ
+     * @return {@code gcm1:} и Base64 от nonce, шифртекста и тега
+     */
+    public String encrypt(String value, SecretKey key) {
+        return ENCRYPT_TIMER.record(() -> encryptGcm(value, key));
+    }
 
-            byte[] encrypted = cipher.doFinal(value.getBytes());
-            return Base64.getEncoder().encodeToString(encrypted);
+    private String encryptGcm(String value, SecretKey key) {
+        byte[] plaintext = value.getBytes(StandardCharsets.UTF_8);
+        byte[] nonce = new byte[GCM_NONCE_LENGTH];
+        RANDOM.nextBytes(nonce);
+        try {
+            Cipher cipher = borrow(GCM_CIPHERS, GCM_TRANSFORMATION);
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, nonce));
+            byte[] out = new byte[GCM_NONCE_LENGTH + cipher.getOutputSize(plaintext.length)];
+            System.arraycopy(nonce, 0, out, 0, GCM_NONCE_LENGTH);
+            cipher.doFinal(plaintext, 0, plaintext.length, out, GCM_NONCE_LENGTH);
+            GCM_CIPHERS.offer(cipher);
+            return GCM_PREFIX + Base64.getEncoder().encodeToString(out);
         } catch (Exception e) {
             throw new AESEncryptionException(e.getMessage());
         }
@@ -58,14 +167,64 @@ public class EncryptionUtils {
      * @return расшифрованная строка
      */
     public String decrypt(String encryptedValue, String base64AESKey) {
-        try {
-            SecretKeySpec keySpec = new SecretKeySpec(Base64.getDecoder().decode(base64AESKey), "AES");
-            Cipher cipher = Cipher.getInstance("AES");
-            cipher.init(Cipher.DECRYPT_MODE, keySpec);
+        return decrypt(encryptedValue, decodeKey(base64AESKey));
+    }
 
-            return new String(cipher.doFinal(Base64.getDecoder().decode(encryptedValue)));
+    /**
+     * Расшифровывает AES-256 строку: AES-GCM для значений с префиксом {@code gcm1:},
+     * прежний режим ECB для остальных.
+     * @param encryptedValue зашифрованная строка
+     * @param key ключ
+     * @return расшифрованная строка
+     */
+    public String decrypt(String encryptedValue, SecretKey key) {
+        return DECRYPT_TIMER.record(() -> decryptAny(encryptedValue, key));
+    }
+
+    private String decryptAny(String encryptedValue, SecretKey key) {
+        try {
+            if (!isGcm(encryptedValue)) {
+                return decryptEcb(encryptedValue, key);
+            }
+            byte[] in = Base64.getDecoder().decode(encryptedValue.substring(GCM_PREFIX.length()));
+            if (in.length < GCM_NONCE_LENGTH + GCM_TAG_BITS / 8) {
+                throw new AESDecryptionException("слишком короткий шифртекст");
+            }
+            Cipher cipher = borrow(GCM_CIPHERS, GCM_TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, in, 0, GCM_NONCE_LENGTH));
+            byte[] plaintext = cipher.doFinal(in, GCM_NONCE_LENGTH, in.length - GCM_NONCE_LENGTH);
+            GCM_CIPHERS.offer(cipher);
+            return new String(plaintext, StandardCharsets.UTF_8);
+        } catch (AESDecryptionException e) {
+            throw e;
         } catch (Exception e) {
             throw new AESDecryptionException(e.getMessage());
         }
     }
+
+    /**
+     * Зашифровано ли значение AES-GCM.
+     * @param encryptedValue зашифрованная строка
+     * @return {@code false} для прежних значений в режиме ECB
+     */
+    public boolean isGcm(String encryptedValue) {
+        return encryptedValue.startsWith(GCM_PREFIX);
+    }
+
+    private String decryptEcb(String encryptedValue, SecretKey key) throws GeneralSecurityException {
+        Cipher cipher = borrow(ECB_CIPHERS, ECB_TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, key);
+        byte[] plaintext = cipher.doFinal(Base64.getDecoder().decode(encryptedValue));
+        ECB_CIPHERS.offer(cipher);
+        return new String(plaintext, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Берёт шифр из пула или создаёт новый, если пул пуст. Шифр возвращается в пул
+     * только после успешной операции; при переполнении пула он просто отбрасывается.
+     */
+    private Cipher borrow(BlockingQueue<Cipher> pool, String transformation) throws GeneralSecurityException {
+        Cipher cipher = pool.poll();
+        return cipher != null ? cipher : Cipher.getInstance(transformation);
+    }
 }
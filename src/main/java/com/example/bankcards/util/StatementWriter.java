@@ -0,0 +1,130 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.StatementFormat;
+import com.example.bankcards.dto.TransactionResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * Построчная запись выгрузки в поток в формате NDJSON или CSV.
+ * <p>
+ * Строки не накапливаются: каждая запись сразу уходит в буфер потока.
+ *
+ * @param <T> тип записи
+ */
+public class StatementWriter<T> implements Closeable {
+
+    private static final String TRANSACTIONS_CSV_HEADER = "id,fromCardId,toCardId,amount,currency,status,description,createdAt";
+    private static final String CARDS_CSV_HEADER = "id,ownerId,maskedNumber,status,balance,expiry,currency";
+
+    private final StatementFormat format;
+    private final ObjectMapper objectMapper;
+    private final Writer out;
+    private final String csvHeader;
+    private final Function<T, String> csvRow;
+
+    public StatementWriter(StatementFormat format, OutputStream out, ObjectMapper objectMapper,
+                           String csvHeader, Function<T, String> csvRow) {
+        this.format = format;
+        this.objectMapper = objectMapper;
+        this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        this.csvHeader = csvHeader;
+        this.csvRow = csvRow;
+    }
+
+    /**
+     * Выписка по транзакциям карты.
+     */
+    public static StatementWriter<TransactionResponse> transactions(StatementFormat format, OutputStream out,
+                                                                    ObjectMapper objectMapper) {
+        return new StatementWriter<>(format, out, objectMapper, TRANSACTIONS_CSV_HEADER, StatementWriter::toCsv);
+    }
+
+    /**
+     * Выгрузка карт для администратора.
+     */
+    public static StatementWriter<CardResponse> cards(StatementFormat format, OutputStream out,
+                                                      ObjectMapper objectMapper) {
+        return new StatementWriter<>(format, out, objectMapper, CARDS_CSV_HEADER, StatementWriter::toCsv);
+    }
+
+    /**
+     * Пишет заголовок выписки, если он предусмотрен форматом.
+     */
+    public void writeHeader() {
+        if (format == StatementFormat.CSV) {
+            line(csvHeader);
+        }
+    }
+
+    /**
+     * Пишет одну запись.
+     *
+     * @param row запись
+     * @throws UncheckedIOException при ошибке записи, например если клиент закрыл соединение
+     */
+    public void write(T row) {
+        try {
+            line(format == StatementFormat.NDJSON ? objectMapper.writeValueAsString(row) : csvRow.apply(row));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void line(String value) {
+        try {
+            out.write(value);
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String toCsv(TransactionResponse t) {
+        return String.join(",",
+                String.valueOf(t.getId()),
+                t.getFromCardId() != null ? t.getFromCardId().toString() : "",
+                t.getToCardId() != null ? t.getToCardId().toString() : "",
+                t.getAmount().toPlainString(),
+                csvField(t.getCurrency()),
+                csvField(t.getStatus()),
+                csvField(t.getDescription()),
+                t.getCreatedAt().toString());
+    }
+
+    private static String toCsv(CardResponse c) {
+        return String.join(",",
+                String.valueOf(c.getId()),
+                c.getOwnerId() != null ? c.getOwnerId().toString() : "",
+                csvField(c.getMaskedNumber()),
+                c.getStatus().name(),
+                c.getBalance().toPlainString(),
+                c.getExpiry() != null ? c.getExpiry().toString() : "",
+                csvField(c.getCurrency()));
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
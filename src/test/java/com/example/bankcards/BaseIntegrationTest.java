@@ -0,0 +1,56 @@
+package com.example.bankcards;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Базовый класс для интеграционных тестов.
+ *
+ * <p>Поднимает встроенный PostgreSQL один раз на все тесты и прогоняет
+ * на нём Liquibase-миграции приложения. Превышение бюджета SQL-запросов
+ * на HTTP-запрос ({@code sql-budget.max-statements}) в запросах MockMvc роняет тест,
+ * см. {@link SqlStatementBudgetCheck}.</p>
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO"
+})
+@Import(SqlStatementBudgetCheck.class)
+public abstract class BaseIntegrationTest {
+
+    protected static final EmbeddedPostgres POSTGRES = startPostgres();
+
+    /** Мастер-ключ тестов: не зависит от активных профилей. */
+    protected static final String MASTER_KEY = "gpN7sOcJz7u387KxSMDDgL0R6YEG0xumdgDrGtqNj2I=";
+
+    @DynamicPropertySource
+    static void datasourceProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url",
+                () -> POSTGRES.getJdbcUrl("postgres", "postgres") + "&reWriteBatchedInserts=true");
+        registry.add("spring.datasource.username", () -> "postgres");
+        registry.add("spring.datasource.password", () -> "postgres");
+        registry.add("encryption.master-key", () -> MASTER_KEY);
+    }
+
+    private static EmbeddedPostgres startPostgres() {
+        try {
+            EmbeddedPostgres postgres = EmbeddedPostgres.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    postgres.close();
+                } catch (IOException ignored) {
+                    // JVM всё равно завершается
+                }
+            }));
+            return postgres;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось запустить встроенный PostgreSQL", e);
+        }
+    }
+}
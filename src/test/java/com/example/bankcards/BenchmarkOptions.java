@@ -0,0 +1,51 @@
+package com.example.bankcards;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Запуск JMH-бенчмарков из тестов с тегом {@code benchmark}.
+ *
+ * <p>Результаты каждого бенчмарка пишутся в JSON-файл {@code <Класс>.json} в каталоге
+ * {@code -Dbenchmark.results-dir} (по умолчанию {@code target/benchmark-results}),
+ * чтобы сравнивать замеры между релизами.</p>
+ */
+public final class BenchmarkOptions {
+
+    private BenchmarkOptions() {
+    }
+
+    /**
+     * Запускает все методы {@code @Benchmark} класса и записывает результаты в JSON.
+     *
+     * @param benchmark класс бенчмарка
+     * @param threads число потоков замера
+     * @param expectedResults ожидаемое число результатов: методы с учётом комбинаций {@code @Param}
+     */
+    public static void run(Class<?> benchmark, int threads, int expectedResults) throws RunnerException {
+        Path dir = Path.of(System.getProperty("benchmark.results-dir", "target/benchmark-results"));
+        try {
+            Files.createDirectories(dir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int results = new Runner(new OptionsBuilder()
+                .include(benchmark.getName() + "\\.")
+                .threads(threads)
+                .resultFormat(ResultFormatType.JSON)
+                .result(dir.resolve(benchmark.getSimpleName() + ".json").toString())
+                .build())
+                .run()
+                .size();
+        assertEquals(expectedResults, results);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.bankcards;
+
+import com.example.bankcards.config.SqlStatementMetricsFilter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.MockMvcBuilderCustomizer;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+/**
+ * Проверяет бюджет SQL-запросов после каждого запроса MockMvc.
+ *
+ * <p>Фильтр {@link SqlStatementMetricsFilter} только пишет предупреждение,
+ * а здесь превышение {@code sql-budget.max-statements} роняет тест.</p>
+ */
+@TestConfiguration
+public class SqlStatementBudgetCheck {
+
+    @Bean
+    MockMvcBuilderCustomizer sqlStatementBudget(@Value("${sql-budget.max-statements:0}") int maxStatements) {
+        return builder -> builder.alwaysExpect(result -> {
+            Object statements = result.getRequest().getAttribute(SqlStatementMetricsFilter.STATEMENTS_ATTRIBUTE);
+            if (maxStatements > 0 && statements instanceof Integer count && count > maxStatements) {
+                throw new AssertionError("%s %s выполнил %d SQL-запросов при бюджете %d".formatted(
+                        result.getRequest().getMethod(), result.getRequest().getRequestURI(), count, maxStatements));
+            }
+        });
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.bankcards.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlStatementMetricsFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SqlStatementCounter inspector = new SqlStatementCounter();
+
+    @Test
+    void withinBudget_recordsStatementsPerEndpoint() throws Exception {
+        MockHttpServletRequest request = request();
+
+        filter().doFilter(request, new MockHttpServletResponse(), statements(3));
+
+        assertEquals(3, request.getAttribute(SqlStatementMetricsFilter.STATEMENTS_ATTRIBUTE));
+        assertEquals(3, meterRegistry.get("bank.http.sql.statements")
+                .tags("method", "GET", "uri", "/api/user/cards/get")
+                .summary()
+                .totalAmount());
+    }
+
+    @Test
+    void overBudget_completesRequestAndRecords() throws Exception {
+        MockHttpServletRequest request = request();
+
+        filter().doFilter(request, new MockHttpServletResponse(), statements(4));
+
+        assertEquals(4, request.getAttribute(SqlStatementMetricsFilter.STATEMENTS_ATTRIBUTE));
+        assertEquals(1, meterRegistry.get("bank.http.sql.statements").summary().count());
+    }
+
+    @Test
+    void outsideRequest_notCounted() throws Exception {
+        inspector.inspect("select 1");
+        MockHttpServletRequest request = request();
+
+        filter().doFilter(request, new MockHttpServletResponse(), statements(0));
+
+        assertEquals(0, request.getAttribute(SqlStatementMetricsFilter.STATEMENTS_ATTRIBUTE));
+    }
+
+    private SqlStatementMetricsFilter filter() {
+        return new SqlStatementMetricsFilter(meterRegistry, 3);
+    }
+
+    private FilterChain statements(int count) {
+        return (request, response) -> {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/user/cards/get");
+            for (int i = 0; i < count; i++) {
+                inspector.inspect("select 1");
+            }
+        };
+    }
+
+    private static MockHttpServletRequest request() {
+        return new MockHttpServletRequest("GET", "/api/user/cards/get");
+    }
+}
@@ -1,27 +1,41 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.BaseWebMvcTest;
+import com.example.bankcards.dto.CardFilterRequest;
+import com.example.bankcards.dto.CardSummary;
 import com.example.bankcards.dto.CreateCardRequest;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.security.JwtAuthFilter;
 import com.example.bankcards.service.AdminCardService;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithAnonymousUser;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
@@ -114,23 +128,69 @@ class AdminCardControllerTest extends BaseWebMvcTest {
 
     @Test
     @WithMockUser(roles = "ADMIN")
-    void getAllCards_success() throws Exception {
-        Card card = Card.builder()
-                .id(1L)
-                .maskedNumber("**** **** **** 1234")
-                .status(CardStatus.ACTIVE)
-                .balance(new BigDecimal("50.00"))
-                .currency("USD")
-                .expiry(LocalDate.now().plusYears(2))
-                .build();
+    void getCards_success() throws Exception {
+        CardSummary card = new CardSummary(1L, 2L, "1234", CardStatus.ACTIVE,
+                new BigDecimal("50.00"), LocalDate.now().plusYears(2), "USD");
+
+        when(adminCardService.getCards(any(), eq(2L), any(Pageable.class)))
+                .thenAnswer(inv -> new PageImpl<>(List.of(card), inv.getArgument(2), 41));
+
+        mockMvc.perform(get("/api/admin/cards")
+                        .param("status", "ACTIVE")
+                        .param("ownerId", "2")
+                        .param("page", "2")
+                        .param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1L))
+                .andExpect(jsonPath("$.content[0].ownerId").value(2L))
+                .andExpect(jsonPath("$.content[0].maskedNumber").value("**** **** **** 1234"))
+                .andExpect(jsonPath("$.totalElements").value(41))
+                .andExpect(jsonPath("$.totalPages").value(3))
+                .andExpect(jsonPath("$.last").value(true));
+
+        ArgumentCaptor<CardFilterRequest> filter = ArgumentCaptor.forClass(CardFilterRequest.class);
+        ArgumentCaptor<Pageable> pageable = ArgumentCaptor.forClass(Pageable.class);
+        verify(adminCardService).getCards(filter.capture(), eq(2L), pageable.capture());
+        assertEquals(CardStatus.ACTIVE, filter.getValue().getStatus());
+        assertEquals(PageRequest.of(2, 20, Sort.by("id")), pageable.getValue());
+    }
 
-        when(adminCardService.getAllCards())
-                .thenReturn(List.of(card));
+    // ============================================================
+    // EXPORT
+    // ============================================================
 
-        mockMvc.perform(get("/api/admin/cards/get-all"))
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    @SuppressWarnings("unchecked")
+    void exportCards_csv_gzipped() throws Exception {
+        doAnswer(inv -> {
+            Consumer<CardSummary> action = inv.getArgument(2);
+            action.accept(new CardSummary(1L, 2L, "1234", CardStatus.ACTIVE,
+                    new BigDecimal("50.00"), LocalDate.of(2028, 1, 1), "USD"));
+            action.accept(new CardSummary(3L, 4L, "5678", CardStatus.BLOCKED,
+                    new BigDecimal("0.00"), LocalDate.of(2029, 1, 1), "RUB"));
+            return null;
+        }).when(adminCardService).streamCards(any(), isNull(), any());
+
+        MvcResult result = mockMvc.perform(get("/api/admin/cards/export").param("format", "csv"))
                 .andExpect(status().isOk())
-                .andExpect(jsonPath("$[0].id").value(1L))
-                .andExpect(jsonPath("$[0].maskedNumber").value("**** **** **** 1234"));
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andReturn();
+
+        assertEquals("id,ownerId,maskedNumber,status,balance,expiry,currency\n"
+                        + "1,2,**** **** **** 1234,ACTIVE,50.00,2028-01-01,USD\n"
+                        + "3,4,**** **** **** 5678,BLOCKED,0.00,2029-01-01,RUB\n",
+                gunzip(result));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void exportCards_unsupportedFormat() throws Exception {
+        mockMvc.perform(get("/api/admin/cards/export").param("format", "xlsx"))
+                .andExpect(status().isBadRequest());
+
+        verify(adminCardService, never()).streamCards(any(), any(), any());
     }
 
     // ============================================================
@@ -180,4 +240,10 @@ class AdminCardControllerTest extends BaseWebMvcTest {
 
         verify(adminCardService).deleteCard(1L);
     }
-}
\ No newline at end of file
+
+    private static String gunzip(MvcResult result) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.CardResponse;
+import com.example.bankcards.dto.CardSummary;
+import com.example.bankcards.dto.PagedResponse;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сборка ответа со страницей карт: отображение сущностей и проекций в {@link CardResponse}
+ * через {@code toResponse} контроллера и сериализация {@code PagedResponse<CardResponse>}
+ * в JSON тем же образом, что и в Spring MVC.
+ *
+ * <p>Запускается из {@link CardResponseBenchmarkTest}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardResponseBenchmark {
+
+    @Param({"20", "200"})
+    private int pageSize;
+
+    private final UserCardController controller = new UserCardController(null, null);
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+    private List<Card> cards;
+    private List<CardSummary> summaries;
+    private PagedResponse<CardResponse> response;
+
+    @Setup
+    public void setUp() {
+        cards = new ArrayList<>(pageSize);
+        summaries = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            String last4 = String.format("%04d", i);
+            LocalDate expiry = LocalDate.of(2030, 1, 1).plusMonths(i % 36);
+            BigDecimal balance = BigDecimal.valueOf(100_000 + i, 2);
+            cards.add(Card.builder()
+                    .id((long) i)
+                    .panLast4(last4)
+                    .maskedNumber("**** **** **** " + last4)
+                    .status(CardStatus.ACTIVE)
+                    .balance(balance)
+                    .expiry(expiry)
+                    .currency("USD")
+                    .build());
+            summaries.add(new CardSummary((long) i, 2L, last4, CardStatus.ACTIVE, balance, expiry, "USD"));
+        }
+        response = PagedResponse.of(new PageImpl<>(mapSummaries(), PageRequest.of(0, pageSize), 10_000));
+    }
+
+    @Benchmark
+    public List<CardResponse> mapEntities() {
+        List<CardResponse> result = new ArrayList<>(cards.size());
+        for (Card card : cards) {
+            result.add(controller.toResponse(card));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<CardResponse> mapSummaries() {
+        List<CardResponse> result = new ArrayList<>(summaries.size());
+        for (CardSummary summary : summaries) {
+            result.add(controller.toResponse(summary));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(response);
+    }
+}
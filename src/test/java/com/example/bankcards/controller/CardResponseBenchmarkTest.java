@@ -0,0 +1,17 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.BenchmarkOptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Запуск {@link CardResponseBenchmark}: {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class CardResponseBenchmarkTest {
+
+    @Test
+    void mapAndSerializePage() throws Exception {
+        BenchmarkOptions.run(CardResponseBenchmark.class, 1, 6);
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.BaseIntegrationTest;
+import com.example.bankcards.config.SqlStatementMetricsFilter;
+import com.example.bankcards.dto.CreateUserRequest;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.UserDetailsServiceImpl;
+import com.example.bankcards.service.AdminCardService;
+import com.example.bankcards.service.AdminUserService;
+import com.example.bankcards.service.UserCardService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Число SQL-запросов Hibernate на каждый эндпоинт контроллеров.
+ * <p>
+ * Счётчик берётся из атрибута {@link SqlStatementMetricsFilter#STATEMENTS_ATTRIBUTE}.
+ * Пользователь и его роли к моменту запроса уже в кэше аутентификации, поэтому
+ * число отражает только работу самого эндпоинта. Рост числа — признак N+1
+ * или лишнего чтения; если запрос стал дешевле, ожидание нужно уменьшить.
+ */
+@AutoConfigureMockMvc
+class SqlStatementCountIntegrationTest extends BaseIntegrationTest {
+
+    private static final String PREFIX = "sql-";
+    private static final String PASSWORD = "sql-password";
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Autowired
+    private AdminUserService adminUserService;
+
+    @Autowired
+    private AdminCardService adminCardService;
+
+    @Autowired
+    private UserCardService userCardService;
+
+    private String username;
+    private Long userId;
+    private Long fromCardId;
+    private Long toCardId;
+    private String userToken;
+    private String adminToken;
+
+    @BeforeEach
+    void setUp() {
+        User user = adminUserService.createUser(userRequest(PREFIX + SEQUENCE.incrementAndGet()));
+        username = user.getUsername();
+        userId = user.getId();
+        fromCardId = adminCardService.createCard(username, new BigDecimal("1000.00"), 3).getId();
+        toCardId = adminCardService.createCard(username, new BigDecimal("1000.00"), 3).getId();
+        userCardService.transferBetweenCards(username, fromCardId, toCardId, new BigDecimal("1.00"));
+
+        userToken = jwtUtil.generateToken(userDetailsService.loadUserByUsername(username));
+        adminToken = jwtUtil.generateToken(userDetailsService.loadUserByUsername("admin"));
+    }
+
+    @AfterEach
+    void tearDown() {
+        String cards = "SELECT c.id FROM cards c JOIN users u ON u.id = c.owner_id WHERE u.username LIKE 'sql-%'";
+        jdbcTemplate.update("DELETE FROM transactions WHERE from_card_id IN (" + cards
+                + ") OR to_card_id IN (" + cards + ")");
+        jdbcTemplate.update("DELETE FROM cards WHERE id IN (" + cards + ")");
+        jdbcTemplate.update("DELETE FROM user_roles WHERE user_id IN (SELECT id FROM users WHERE username LIKE 'sql-%')");
+        jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'sql-%'");
+    }
+
+    // AuthController
+
+    @Test
+    void login() throws Exception {
+        assertStatements(0, post("/api/auth/login").servletPath("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("username", username, "password", PASSWORD))), null, status().isOk());
+    }
+
+    // AdminCardController
+
+    @Test
+    void adminCards_create() throws Exception {
+        assertStatements(2, post("/api/admin/cards/create").contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("username", username, "balance", "10.00", "expiresInYears", 3))),
+                adminToken, status().isCreated());
+    }
+
+    @Test
+    void adminCards_list() throws Exception {
+        assertStatements(1, get("/api/admin/cards").param("ownerId", userId.toString()), adminToken, status().isOk());
+    }
+
+    @Test
+    void adminCards_export() throws Exception {
+        assertStatements(1, get("/api/admin/cards/export").param("ownerId", userId.toString()),
+                adminToken, status().isOk());
+    }
+
+    @Test
+    void adminCards_activate() throws Exception {
+        assertStatements(1, post("/api/admin/cards/{id}/activate", fromCardId), adminToken, status().isNoContent());
+    }
+
+    @Test
+    void adminCards_block() throws Exception {
+        userCardService.requestBlockCard(fromCardId, username);
+
+        assertStatements(2, post("/api/admin/cards/{id}/block", fromCardId), adminToken, status().isNoContent());
+    }
+
+    @Test
+    void adminCards_delete() throws Exception {
+        Long cardId = adminCardService.createCard(username, BigDecimal.ZERO, 3).getId();
+
+        assertStatements(2, delete("/api/admin/cards/{id}/delete", cardId), adminToken, status().isNoContent());
+    }
+
+    // AdminUserController
+
+    @Test
+    void adminUsers_create() throws Exception {
+        assertStatements(4, post("/api/admin/users/create").contentType(MediaType.APPLICATION_JSON)
+                .content(json(userRequest(username + "-new"))), adminToken, status().isCreated());
+    }
+
+    @Test
+    void adminUsers_getAll_loadsRolesWithUsers() throws Exception {
+        adminUserService.createUser(userRequest(username + "-a"));
+        adminUserService.createUser(userRequest(username + "-b"));
+
+        // Роли читаются тем же запросом; без графа сущности — ещё по запросу на пользователя
+        assertStatements(1, get("/api/admin/users/get-all"), adminToken, status().isOk());
+    }
+
+    @Test
+    void adminUsers_updateRoles() throws Exception {
+        assertStatements(6, put("/api/admin/users/{id}/roles/update", userId).contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("roles", Set.of("ROLE_USER", "ROLE_ADMIN")))), adminToken, status().isNoContent());
+    }
+
+    @Test
+    void adminUsers_addRole() throws Exception {
+        assertStatements(4, post("/api/admin/users/{id}/roles/add", userId).param("role", "ROLE_ADMIN"),
+                adminToken, status().isNoContent());
+    }
+
+    @Test
+    void adminUsers_removeRole() throws Exception {
+        adminUserService.addRole(userId, "ROLE_ADMIN");
+
+        assertStatements(4, post("/api/admin/users/{id}/roles/remove", userId).param("role", "ROLE_ADMIN"),
+                adminToken, status().isNoContent());
+    }
+
+    @Test
+    void adminUsers_delete() throws Exception {
+        Long id = adminUserService.createUser(userRequest(username + "-del")).getId();
+
+        assertStatements(3, delete("/api/admin/users/{id}/delete", id), adminToken, status().isNoContent());
+    }
+
+    // UserCardController
+
+    @Test
+    void userCards_get() throws Exception {
+        assertStatements(2, get("/api/user/cards/get"), userToken, status().isOk());
+    }
+
+    @Test
+    void userCards_getWithTotal() throws Exception {
+        // Первая страница неполная, поэтому count(*) не выполняется
+        assertStatements(2, get("/api/user/cards/get").param("withTotal", "true"), userToken, status().isOk());
+    }
+
+    @Test
+    void userCards_getDecrypted() throws Exception {
+        assertStatements(2, get("/api/user/cards/get-decrypted"), userToken, status().isOk());
+    }
+
+    @Test
+    void userCards_getDecryptedOne() throws Exception {
+        assertStatements(2, get("/api/user/cards/{id}/get-decrypted", fromCardId), userToken, status().isOk());
+    }
+
+    @Test
+    void userCards_transfer() throws Exception {
+        assertStatements(5, post("/api/user/cards/transfer").contentType(MediaType.APPLICATION_JSON)
+                .content(json(transfer(fromCardId, toCardId))), userToken, status().isNoContent());
+    }
+
+    @Test
+    void userCards_transferBatch() throws Exception {
+        // Балансы и транзакции пишутся пакетами через JdbcTemplate и в счёт не входят
+        assertStatements(2, post("/api/user/cards/transfer/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(json(Map.of("transfers", List.of(
+                        transfer(fromCardId, toCardId), transfer(toCardId, fromCardId), transfer(fromCardId, toCardId))))),
+                userToken, status().isOk());
+    }
+
+    @Test
+    void userCards_balance() throws Exception {
+        assertStatements(2, get("/api/user/cards/{id}/balance", fromCardId), userToken, status().isOk());
+    }
+
+    @Test
+    void userCards_requestBlock() throws Exception {
+        assertStatements(3, post("/api/user/cards/{id}/request-block", fromCardId), userToken, status().isNoContent());
+    }
+
+    // TransactionController
+
+    @Test
+    void transactions_get() throws Exception {
+        assertStatements(2, get("/api/user/transactions/{id}/get", fromCardId), userToken, status().isOk());
+    }
+
+    @Test
+    void transactions_page() throws Exception {
+        assertStatements(2, get("/api/user/transactions/{id}/page", fromCardId), userToken, status().isOk());
+    }
+
+    @Test
+    void transactions_export() throws Exception {
+        assertStatements(3, get("/api/user/transactions/{id}/export", fromCardId), userToken, status().isOk());
+    }
+
+    private void assertStatements(int expected, MockHttpServletRequestBuilder request, String token,
+                                  ResultMatcher status) throws Exception {
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        Object statements = mockMvc.perform(request)
+                .andExpect(status)
+                .andReturn()
+                .getRequest()
+                .getAttribute(SqlStatementMetricsFilter.STATEMENTS_ATTRIBUTE);
+        assertEquals(expected, statements);
+    }
+
+    private static CreateUserRequest userRequest(String username) {
+        CreateUserRequest request = new CreateUserRequest();
+        request.setUsername(username);
+        request.setPassword(PASSWORD);
+        request.setEmail(username + "@example.com");
+        request.setRoles(Set.of("ROLE_USER"));
+        return request;
+    }
+
+    private static Map<String, Object> transfer(Long fromCardId, Long toCardId) {
+        return Map.of("fromCardId", fromCardId, "toCardId", toCardId, "amount", "1.00");
+    }
+
+    private String json(Object body) throws Exception {
+        return objectMapper.writeValueAsString(body);
+    }
+}
@@ -5,6 +5,7 @@ import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Transaction;
 import com.example.bankcards.entity.TransactionStatus;
 import com.example.bankcards.security.JwtAuthFilter;
+import com.example.bankcards.service.TransactionCursor;
 import com.example.bankcards.service.TransactionService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -14,18 +15,35 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.FilterType;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.test.context.support.WithAnonymousUser;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -81,6 +99,133 @@ class TransactionControllerTest extends BaseWebMvcTest {
                 .getUserCardTransactions("user1", 1L);
     }
 
+    // ============================================================
+    // KEYSET PAGE
+    // ============================================================
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void getTransactionsPage_returnsNextCursor() throws Exception {
+        LocalDateTime createdAt = LocalDateTime.of(2025, 3, 1, 10, 15, 30);
+        Transaction transaction = Transaction.builder()
+                .id(10L)
+                .amount(new BigDecimal("100.00"))
+                .status(TransactionStatus.COMPLETED)
+                .createdAt(createdAt)
+                .build();
+
+        when(transactionService.getUserCardTransactionsPage(
+                eq("user1"), eq(1L), eq(TransactionCursor.FIRST), eq(1)
+        )).thenReturn(new SliceImpl<>(List.of(transaction), PageRequest.ofSize(1), true));
+
+        mockMvc.perform(get("/api/user/transactions/1/page").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(10L))
+                .andExpect(jsonPath("$.last").value(false))
+                .andExpect(jsonPath("$.nextCursor")
+                        .value(new TransactionCursor(createdAt, 10L).encode()));
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void getTransactionsPage_followsCursor() throws Exception {
+        TransactionCursor cursor = new TransactionCursor(LocalDateTime.of(2025, 3, 1, 10, 15, 30), 10L);
+
+        when(transactionService.getUserCardTransactionsPage(eq("user1"), eq(1L), eq(cursor), eq(50)))
+                .thenReturn(new SliceImpl<>(List.of(), PageRequest.ofSize(50), false));
+
+        mockMvc.perform(get("/api/user/transactions/1/page").param("cursor", cursor.encode()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.last").value(true))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void getTransactionsPage_invalidCursor() throws Exception {
+        mockMvc.perform(get("/api/user/transactions/1/page").param("cursor", "not-a-cursor"))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ============================================================
+    // EXPORT
+    // ============================================================
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void exportTransactions_ndjson_gzipped() throws Exception {
+        streamTransactions(
+                transaction(10L, "Transfer", LocalDateTime.of(2025, 3, 1, 10, 15, 30)),
+                transaction(11L, "Refund", LocalDateTime.of(2025, 3, 2, 9, 0)));
+
+        MvcResult result = mockMvc.perform(get("/api/user/transactions/1/export")
+                        .param("from", "2025-01-01")
+                        .param("to", "2025-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Content-Type", "application/x-ndjson;charset=UTF-8"))
+                .andExpect(header().string("Content-Disposition",
+                        "attachment; filename=\"statement-1-2025-01-01-2025-12-31.ndjson\""))
+                .andReturn();
+
+        String[] lines = gunzip(result).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(10L, objectMapper.readTree(lines[0]).get("id").asLong());
+        assertEquals("2025-03-01T10:15:30", objectMapper.readTree(lines[0]).get("createdAt").asText());
+        assertEquals("Refund", objectMapper.readTree(lines[1]).get("description").asText());
+        verify(transactionService).streamUserCardTransactions(eq("user1"), eq(1L),
+                eq(LocalDateTime.of(2025, 1, 1, 0, 0)), eq(LocalDateTime.of(2026, 1, 1, 0, 0)), any());
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void exportTransactions_csv_quotesDescription() throws Exception {
+        streamTransactions(transaction(10L, "Rent, \"March\"", LocalDateTime.of(2025, 3, 1, 10, 15, 30)));
+
+        MvcResult result = mockMvc.perform(get("/api/user/transactions/1/export").param("format", "CSV"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+                .andReturn();
+
+        assertEquals("id,fromCardId,toCardId,amount,currency,status,description,createdAt\n"
+                        + "10,1,2,100.00,USD,COMPLETED,\"Rent, \"\"March\"\"\",2025-03-01T10:15:30\n",
+                gunzip(result));
+        LocalDate today = LocalDate.now();
+        verify(transactionService).streamUserCardTransactions(eq("user1"), eq(1L),
+                eq(today.minusYears(1).atStartOfDay()), eq(today.plusDays(1).atStartOfDay()), any());
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void exportTransactions_unsupportedFormat() throws Exception {
+        mockMvc.perform(get("/api/user/transactions/1/export").param("format", "xlsx"))
+                .andExpect(status().isBadRequest());
+
+        verify(transactionService, never()).streamUserCardTransactions(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void exportTransactions_periodReversed() throws Exception {
+        mockMvc.perform(get("/api/user/transactions/1/export")
+                        .param("from", "2025-02-01")
+                        .param("to", "2025-01-01"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void exportTransactions_foreignCard_forbiddenBeforeStreaming() throws Exception {
+        doThrow(new AccessDeniedException("Вы не можете смотреть транзакции других пользователей"))
+                .when(transactionService).checkCardOwnedByUser(1L, "user1");
+
+        mockMvc.perform(get("/api/user/transactions/1/export"))
+                .andExpect(status().isForbidden())
+                .andExpect(header().doesNotExist("Content-Encoding"));
+
+        verify(transactionService, never()).streamUserCardTransactions(any(), any(), any(), any(), any());
+    }
+
     // ============================================================
     // UNAUTHORIZED
     // ============================================================
@@ -90,4 +235,31 @@ class TransactionControllerTest extends BaseWebMvcTest {
         mockMvc.perform(get("/api/user/transactions/1/get"))
                 .andExpect(status().isUnauthorized());
     }
-}
\ No newline at end of file
+
+    private static Transaction transaction(Long id, String description, LocalDateTime createdAt) {
+        return Transaction.builder()
+                .id(id)
+                .fromCard(Card.builder().id(1L).build())
+                .toCard(Card.builder().id(2L).build())
+                .amount(new BigDecimal("100.00"))
+                .currency("USD")
+                .status(TransactionStatus.COMPLETED)
+                .description(description)
+                .createdAt(createdAt)
+                .build();
+    }
+
+    private void streamTransactions(Transaction... transactions) {
+        doAnswer(invocation -> {
+            Consumer<Transaction> action = invocation.getArgument(4);
+            List.of(transactions).forEach(action);
+            return null;
+        }).when(transactionService).streamUserCardTransactions(any(), any(), any(), any(), any());
+    }
+
+    private static String gunzip(MvcResult result) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray()))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
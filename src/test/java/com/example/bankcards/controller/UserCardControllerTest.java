@@ -1,11 +1,11 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.BaseWebMvcTest;
-import com.example.bankcards.dto.CardFilterRequest;
-import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.dto.*;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.security.JwtAuthFilter;
+import com.example.bankcards.service.IdempotencyService;
 import com.example.bankcards.service.UserCardService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -17,6 +17,8 @@ import org.springframework.context.annotation.FilterType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithAnonymousUser;
 import org.springframework.security.test.context.support.WithMockUser;
@@ -25,10 +27,10 @@ import org.springframework.test.web.servlet.MockMvc;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.*;
-import static org.mockito.Mockito.verify;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.*;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -45,6 +47,9 @@ class UserCardControllerTest extends BaseWebMvcTest {
     @MockBean
     private UserCardService userCardService;
 
+    @MockBean
+    private IdempotencyService idempotencyService;
+
     // ============================================================
     // GET USER CARDS (masked)
     // ============================================================
@@ -52,31 +57,49 @@ class UserCardControllerTest extends BaseWebMvcTest {
     @Test
     @WithMockUser(username = "user1", roles = "USER")
     void getUserCards_success() throws Exception {
-        Card card = Card.builder()
-                .id(1L)
-                .maskedNumber("**** **** **** 1234")
-                .status(CardStatus.ACTIVE)
-                .balance(new BigDecimal("100.00"))
-                .currency("USD")
-                .expiry(LocalDate.now().plusYears(2))
-                .build();
+        CardSummary card = new CardSummary(1L, 2L, "1234", CardStatus.ACTIVE,
+                new BigDecimal("100.00"), LocalDate.now().plusYears(2), "USD");
 
-        Page<Card> page = new PageImpl<>(List.of(card));
+        Slice<CardSummary> slice = new SliceImpl<>(List.of(card), PageRequest.of(0, 20), true);
 
         when(userCardService.getUserCards(
                 eq("user1"),
                 any(CardFilterRequest.class),
-                any(PageRequest.class)
-        )).thenReturn(page);
+                any(PageRequest.class),
+                eq(false)
+        )).thenReturn(slice);
 
         mockMvc.perform(get("/api/user/cards/get"))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.content[0].id").value(1L))
                 .andExpect(jsonPath("$.content[0].maskedNumber").value("**** **** **** 1234"))
-                .andExpect(jsonPath("$.content[0].balance").value(100.00));
+                .andExpect(jsonPath("$.content[0].balance").value(100.00))
+                .andExpect(jsonPath("$.content[0].ownerId").doesNotExist())
+                .andExpect(jsonPath("$.last").value(false))
+                .andExpect(jsonPath("$.totalElements").doesNotExist())
+                .andExpect(jsonPath("$.totalPages").doesNotExist());
 
         verify(userCardService)
-                .getUserCards(eq("user1"), any(CardFilterRequest.class), any(PageRequest.class));
+                .getUserCards(eq("user1"), any(CardFilterRequest.class), any(PageRequest.class), eq(false));
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void getUserCards_withTotal() throws Exception {
+        CardSummary card = new CardSummary(1L, 2L, "1234", CardStatus.ACTIVE,
+                new BigDecimal("100.00"), LocalDate.now().plusYears(2), "USD");
+
+        when(userCardService.getUserCards(
+                eq("user1"),
+                any(CardFilterRequest.class),
+                any(PageRequest.class),
+                eq(true)
+        )).thenAnswer(inv -> new PageImpl<>(List.of(card), inv.getArgument(2), 21));
+
+        mockMvc.perform(get("/api/user/cards/get").param("withTotal", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").value(21))
+                .andExpect(jsonPath("$.totalPages").value(2));
     }
 
     // ============================================================
@@ -97,7 +120,8 @@ class UserCardControllerTest extends BaseWebMvcTest {
 
         when(userCardService.getDecryptedPanUserCards(
                 eq("user1"),
-                any(PageRequest.class)
+                any(PageRequest.class),
+                eq(false)
         )).thenReturn(page);
 
         mockMvc.perform(get("/api/user/cards/get-decrypted"))
@@ -106,7 +130,7 @@ class UserCardControllerTest extends BaseWebMvcTest {
                         .value("1234567812345678"));
 
         verify(userCardService)
-                .getDecryptedPanUserCards(eq("user1"), any(PageRequest.class));
+                .getDecryptedPanUserCards(eq("user1"), any(PageRequest.class), eq(false));
     }
 
     // ============================================================
@@ -156,6 +180,100 @@ class UserCardControllerTest extends BaseWebMvcTest {
 
         verify(userCardService)
                 .transferBetweenCards("user1", 1L, 2L, new BigDecimal("10.00"));
+        verifyNoInteractions(idempotencyService);
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void transferBetweenCards_withIdempotencyKey_firstRequest() throws Exception {
+        TransferRequest request = new TransferRequest();
+        request.setFromCardId(1L);
+        request.setToCardId(2L);
+        request.setAmount(new BigDecimal("10.00"));
+
+        when(idempotencyService.execute(eq("user1"), eq("key-1"), eq("1:2:10"), any()))
+                .thenAnswer(invocation -> {
+                    invocation.<Consumer<Runnable>>getArgument(3).accept(() -> { });
+                    return false;
+                });
+
+        mockMvc.perform(post("/api/user/cards/transfer")
+                        .with(csrf())
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isNoContent())
+                .andExpect(header().doesNotExist("Idempotent-Replayed"));
+
+        verify(userCardService)
+                .transferBetweenCards(eq("user1"), eq(1L), eq(2L), eq(new BigDecimal("10.00")), any(Runnable.class));
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void transferBetweenCards_withIdempotencyKey_replayed() throws Exception {
+        TransferRequest request = new TransferRequest();
+        request.setFromCardId(1L);
+        request.setToCardId(2L);
+        request.setAmount(new BigDecimal("10.00"));
+
+        when(idempotencyService.execute(eq("user1"), eq("key-1"), eq("1:2:10"), any()))
+                .thenReturn(true);
+
+        mockMvc.perform(post("/api/user/cards/transfer")
+                        .with(csrf())
+                        .header("Idempotency-Key", "key-1")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isNoContent())
+                .andExpect(header().string("Idempotent-Replayed", "true"));
+
+        verifyNoInteractions(userCardService);
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void transferBatch_success() throws Exception {
+        TransferRequest transfer = new TransferRequest();
+        transfer.setFromCardId(1L);
+        transfer.setToCardId(2L);
+        transfer.setAmount(new BigDecimal("10.00"));
+
+        BatchTransferRequest request = new BatchTransferRequest();
+        request.setMode(BatchTransferMode.BEST_EFFORT);
+        request.setTransfers(List.of(transfer, transfer));
+
+        when(userCardService.transferBatch(eq("user1"), anyList(), eq(BatchTransferMode.BEST_EFFORT)))
+                .thenReturn(List.of(
+                        BatchTransferItemResult.builder().index(0).status(BatchTransferItemStatus.COMPLETED).build(),
+                        BatchTransferItemResult.builder().index(1).status(BatchTransferItemStatus.FAILED)
+                                .code(402).error("Недостаточно средств").build()
+                ));
+
+        mockMvc.perform(post("/api/user/cards/transfer/batch")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.completed").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[1].status").value("FAILED"))
+                .andExpect(jsonPath("$.results[1].code").value(402));
+    }
+
+    @Test
+    @WithMockUser(username = "user1", roles = "USER")
+    void transferBatch_emptyBatch_badRequest() throws Exception {
+        BatchTransferRequest request = new BatchTransferRequest();
+        request.setTransfers(List.of());
+
+        mockMvc.perform(post("/api/user/cards/transfer/batch")
+                        .with(csrf())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(userCardService);
     }
 
     // ============================================================
@@ -0,0 +1,172 @@
+package com.example.bankcards.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+/**
+ * HTTP-нагрузка на запущенное приложение без внешних инструментов.
+ * <p>
+ * Каждый клиент — виртуальный поток в замкнутом цикле: получает от сценария следующий
+ * запрос, отправляет его и ждёт ответа. После прогрева задержки записываются в
+ * HdrHistogram отдельно по каждому эндпоинту; ответ с неожиданным статусом или сбой
+ * соединения считается ошибкой.
+ */
+public class LoadDriver {
+
+    /** Верхняя граница гистограммы; более долгие ответы записываются как эта величина. */
+    private static final long MAX_LATENCY_US = TimeUnit.MINUTES.toMicros(2);
+
+    private final Duration warmup;
+    private final Duration duration;
+
+    /**
+     * @param warmup сколько длится прогрев, замеры за это время отбрасываются
+     * @param duration сколько длится замер
+     */
+    public LoadDriver(Duration warmup, Duration duration) {
+        this.warmup = warmup;
+        this.duration = duration;
+    }
+
+    /**
+     * Запрос сценария.
+     *
+     * @param endpoint имя эндпоинта в отчёте
+     * @param request HTTP-запрос
+     * @param expectedStatus статус успешного ответа
+     */
+    public record Call(String endpoint, HttpRequest request, int expectedStatus) {
+    }
+
+    /**
+     * Подаёт нагрузку и собирает статистику.
+     *
+     * @param clients число одновременных клиентов
+     * @param scenario следующий запрос по номеру клиента; вызывается из потока клиента
+     * @return статистика по эндпоинтам за время замера
+     */
+    public Report run(int clients, IntFunction<Call> scenario) throws InterruptedException {
+        long measureFrom = System.nanoTime() + warmup.toNanos();
+        long measureTo = measureFrom + duration.toNanos();
+        Map<String, EndpointStats> stats = new ConcurrentHashMap<>();
+
+        try (HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+             ExecutorService pool = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < clients; i++) {
+                int client = i;
+                pool.submit(() -> {
+                    long start;
+                    while ((start = System.nanoTime()) < measureTo) {
+                        Call call = scenario.apply(client);
+                        boolean ok;
+                        try {
+                            ok = http.send(call.request(), HttpResponse.BodyHandlers.discarding())
+                                    .statusCode() == call.expectedStatus();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            return;
+                        } catch (Exception e) {
+                            ok = false;
+                        }
+                        if (start >= measureFrom) {
+                            stats.computeIfAbsent(call.endpoint(), name -> new EndpointStats())
+                                    .record(ok, System.nanoTime() - start);
+                        }
+                    }
+                });
+            }
+        }
+        return new Report(new TreeMap<>(stats), duration);
+    }
+
+    /**
+     * Статистика одного эндпоинта: задержки успешных ответов и число ошибок.
+     */
+    public static class EndpointStats {
+
+        private final Histogram latenciesUs = new ConcurrentHistogram(MAX_LATENCY_US, 3);
+        private final LongAdder errors = new LongAdder();
+
+        void record(boolean ok, long latencyNs) {
+            if (ok) {
+                latenciesUs.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNs), MAX_LATENCY_US));
+            } else {
+                errors.increment();
+            }
+        }
+
+        public long successes() {
+            return latenciesUs.getTotalCount();
+        }
+
+        public long errors() {
+            return errors.sum();
+        }
+
+        /**
+         * Задержка на перцентиле, в миллисекундах.
+         *
+         * @param percentile перцентиль от 0 до 100
+         */
+        public double percentileMs(double percentile) {
+            return latenciesUs.getValueAtPercentile(percentile) / 1000.0;
+        }
+    }
+
+    /**
+     * Итог прогона.
+     *
+     * @param endpoints статистика по эндпоинтам, по имени
+     * @param duration длительность замера
+     */
+    public record Report(Map<String, EndpointStats> endpoints, Duration duration) {
+
+        public long requests() {
+            return endpoints.values().stream().mapToLong(s -> s.successes() + s.errors()).sum();
+        }
+
+        public long errors() {
+            return endpoints.values().stream().mapToLong(EndpointStats::errors).sum();
+        }
+
+        public double errorRate() {
+            long requests = requests();
+            return requests == 0 ? 0 : (double) errors() / requests;
+        }
+
+        /**
+         * Печатает таблицу: пропускная способность, перцентили задержки и доля ошибок по эндпоинтам.
+         *
+         * @param title заголовок таблицы
+         */
+        public void print(String title) {
+            double seconds = duration.toMillis() / 1000.0;
+            System.out.printf("%n[load] %s, замер %.0f с%n", title, seconds);
+            System.out.printf("[load] %-14s %10s %9s %9s %9s %9s %9s %8s%n",
+                    "эндпоинт", "запросов/с", "p50, мс", "p90, мс", "p99, мс", "p99.9, мс", "max, мс", "ошибок");
+            endpoints.forEach((name, s) -> System.out.printf(
+                    "[load] %-14s %,10.1f %,9.1f %,9.1f %,9.1f %,9.1f %,9.1f %7.2f%%%n",
+                    name, (s.successes() + s.errors()) / seconds,
+                    s.percentileMs(50), s.percentileMs(90), s.percentileMs(99), s.percentileMs(99.9),
+                    s.percentileMs(100), 100.0 * s.errors() / Math.max(1, s.successes() + s.errors())));
+            System.out.printf("[load] %-14s %,10.1f %49s %7.2f%%%n",
+                    "всего", requests() / seconds, "", 100 * errorRate());
+        }
+    }
+}
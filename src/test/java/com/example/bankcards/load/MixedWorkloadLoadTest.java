@@ -0,0 +1,181 @@
+package com.example.bankcards.load;
+
+import com.example.bankcards.BaseIntegrationTest;
+import com.example.bankcards.dto.CreateUserRequest;
+import com.example.bankcards.service.AdminCardService;
+import com.example.bankcards.service.AdminUserService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Смешанная нагрузка по HTTP на приложение со встроенным PostgreSQL.
+ * <p>
+ * Перед прогоном через {@link AdminUserService} и {@link AdminCardService} создаются
+ * {@code load.users} пользователей и {@code load.cards} карт (не меньше двух на пользователя).
+ * Клиенты действуют от имени этих пользователей: 5% запросов — вход, 40% — список карт,
+ * 30% — история транзакций карты, 25% — перевод между своими картами.
+ *
+ * <p>Запуск: {@code mvn test -Pbenchmark -Dtest=MixedWorkloadLoadTest}; параметры —
+ * {@code -Dload.users}, {@code -Dload.cards}, {@code -Dload.clients}, {@code -Dload.seconds}.</p>
+ */
+@Tag("benchmark")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.jpa.show-sql=false",
+        "logging.level.org.hibernate.SQL=INFO"
+})
+class MixedWorkloadLoadTest extends BaseIntegrationTest {
+
+    private static final int USERS = Integer.getInteger("load.users", 50);
+    private static final int CARDS = Math.max(Integer.getInteger("load.cards", 200), 2 * USERS);
+    private static final int CLIENTS = Integer.getInteger("load.clients", 200);
+    private static final long SECONDS = Long.getLong("load.seconds", 30);
+    private static final String PREFIX = "load-";
+    private static final String PASSWORD = "load-password";
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private AdminUserService adminUserService;
+
+    @Autowired
+    private AdminCardService adminCardService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Пользователь нагрузки.
+     *
+     * @param username логин
+     * @param token JWT, полученный при входе
+     * @param cardIds карты пользователя
+     */
+    private record LoadUser(String username, String token, List<Long> cardIds) {
+    }
+
+    private final List<LoadUser> users = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        List<List<Long>> cards = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            CreateUserRequest request = new CreateUserRequest();
+            request.setUsername(PREFIX + i);
+            request.setPassword(PASSWORD);
+            request.setEmail(PREFIX + i + "@example.com");
+            request.setRoles(Set.of("ROLE_USER"));
+            adminUserService.createUser(request);
+            cards.add(new ArrayList<>());
+        }
+        for (int i = 0; i < CARDS; i++) {
+            cards.get(i % USERS).add(adminCardService.createCard(
+                    PREFIX + (i % USERS), new BigDecimal("1000000.00"), 3).getId());
+        }
+
+        try (HttpClient http = HttpClient.newHttpClient()) {
+            for (int i = 0; i < USERS; i++) {
+                HttpResponse<String> response = http.send(login(PREFIX + i), HttpResponse.BodyHandlers.ofString());
+                String token = objectMapper.readTree(response.body()).get("token").asText();
+                users.add(new LoadUser(PREFIX + i, token, cards.get(i)));
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        String cardsOfLoadUsers = "SELECT c.id FROM cards c JOIN users u ON u.id = c.owner_id WHERE u.username LIKE 'load-%'";
+        jdbcTemplate.update("DELETE FROM transactions WHERE from_card_id IN (" + cardsOfLoadUsers
+                + ") OR to_card_id IN (" + cardsOfLoadUsers + ")");
+        jdbcTemplate.update("DELETE FROM cards WHERE id IN (" + cardsOfLoadUsers + ")");
+        jdbcTemplate.update("DELETE FROM user_roles WHERE user_id IN (SELECT id FROM users WHERE username LIKE 'load-%')");
+        jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'load-%'");
+    }
+
+    @Test
+    void mixedWorkload() throws Exception {
+        LoadDriver.Report report = new LoadDriver(Duration.ofSeconds(5), Duration.ofSeconds(SECONDS))
+                .run(CLIENTS, client -> next(users.get(client % users.size())));
+
+        report.print(String.format("%d клиентов, %d пользователей, %d карт", CLIENTS, USERS, CARDS));
+        assertTrue(report.endpoints().keySet().containsAll(List.of("login", "cards", "history", "transfer")),
+                report.endpoints()::toString);
+        assertTrue(report.errorRate() < 0.01, () -> "ошибок: " + report.errors() + " из " + report.requests());
+    }
+
+    private LoadDriver.Call next(LoadUser user) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int roll = random.nextInt(100);
+        if (roll < 5) {
+            return new LoadDriver.Call("login", login(user.username()), 200);
+        }
+        if (roll < 45) {
+            return new LoadDriver.Call("cards", get(user, "/api/user/cards/get?size=20"), 200);
+        }
+        List<Long> cardIds = user.cardIds();
+        int from = random.nextInt(cardIds.size());
+        if (roll < 75) {
+            return new LoadDriver.Call("history",
+                    get(user, "/api/user/transactions/" + cardIds.get(from) + "/page?size=20"), 200);
+        }
+        int to = (from + 1 + random.nextInt(cardIds.size() - 1)) % cardIds.size();
+        return new LoadDriver.Call("transfer", post(user.token(), "/api/user/cards/transfer", Map.of(
+                "fromCardId", cardIds.get(from),
+                "toCardId", cardIds.get(to),
+                "amount", "1.00")), 204);
+    }
+
+    private HttpRequest login(String username) {
+        return post(null, "/api/auth/login", Map.of("username", username, "password", PASSWORD));
+    }
+
+    private HttpRequest get(LoadUser user, String path) {
+        return request(path)
+                .header("Authorization", "Bearer " + user.token())
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String token, String path, Map<String, Object> body) {
+        HttpRequest.Builder builder = request(path).header("Content-Type", "application/json");
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        try {
+            return builder.POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body))).build();
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+                .timeout(Duration.ofSeconds(60));
+    }
+}
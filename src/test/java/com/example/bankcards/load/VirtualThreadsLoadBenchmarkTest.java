@@ -0,0 +1,74 @@
+package com.example.bankcards.load;
+
+import com.example.bankcards.BankRestApplication;
+import com.example.bankcards.BaseIntegrationTest;
+import com.example.bankcards.security.JwtUtil;
+import com.example.bankcards.security.UserDetailsServiceImpl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузка на {@code GET /api/user/cards/get} с профилем {@code virtual-threads} и без него.
+ * <p>
+ * Приложение поднимается дважды на встроенном PostgreSQL: {@code prod} и
+ * {@code prod,virtual-threads}. Клиенты работают в замкнутом цикле через {@link LoadDriver};
+ * печатаются пропускная способность, перцентили задержки и доля ошибок.
+ *
+ * <p>Запуск: {@code mvn test -Pbenchmark -Dtest=VirtualThreadsLoadBenchmarkTest};
+ * число клиентов — {@code -Dbenchmark.clients}, длительность замера в секундах —
+ * {@code -Dbenchmark.seconds}.</p>
+ */
+@Tag("benchmark")
+class VirtualThreadsLoadBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int CLIENTS = Integer.getInteger("benchmark.clients", 2_000);
+    private static final long SECONDS = Long.getLong("benchmark.seconds", 20);
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @Test
+    void userCards_platformThreadsVersusVirtualThreads() throws Exception {
+        String token = jwtUtil.generateToken(userDetailsService.loadUserByUsername("user"));
+
+        LoadDriver.Report platform = run(token, "prod");
+        LoadDriver.Report virtual = run(token, "prod", "virtual-threads");
+
+        platform.print(CLIENTS + " клиентов, prod");
+        virtual.print(CLIENTS + " клиентов, prod,virtual-threads");
+        assertTrue(platform.requests() > 0 && virtual.requests() > 0);
+    }
+
+    private LoadDriver.Report run(String token, String... profiles) throws InterruptedException {
+        try (ConfigurableApplicationContext app = new SpringApplicationBuilder(BankRestApplication.class)
+                .profiles(profiles)
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + POSTGRES.getJdbcUrl("postgres", "postgres"),
+                        "--spring.datasource.username=postgres",
+                        "--spring.datasource.password=postgres",
+                        "--encryption.master-key=" + MASTER_KEY,
+                        "--encryption.reencrypt-legacy-on-startup=false",
+                        "--logging.level.root=WARN")) {
+            int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/user/cards/get"))
+                    .header("Authorization", "Bearer " + token)
+                    .timeout(Duration.ofSeconds(60))
+                    .build();
+            return new LoadDriver(Duration.ofSeconds(5), Duration.ofSeconds(SECONDS))
+                    .run(CLIENTS, client -> new LoadDriver.Call("cards", request, 200));
+        }
+    }
+}
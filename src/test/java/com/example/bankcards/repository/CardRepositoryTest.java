@@ -0,0 +1,157 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.BaseIntegrationTest;
+import com.example.bankcards.dto.CardFilterRequest;
+import com.example.bankcards.dto.CardSummary;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.CardStatus;
+import com.example.bankcards.service.AdminCardService;
+import com.example.bankcards.service.CardFilter;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardRepositoryTest extends BaseIntegrationTest {
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private AdminCardService adminCardService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> created = new ArrayList<>();
+    private Long userId;
+
+    @BeforeEach
+    void setUp() {
+        userId = userRepository.findByUsername("user").orElseThrow().getId();
+        for (int i = 0; i < 5; i++) {
+            created.add(adminCardService.createCard("user", new BigDecimal(900_000 + i), 3).getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        created.forEach(id -> jdbcTemplate.update("DELETE FROM cards WHERE id = ?", id));
+    }
+
+    @Test
+    void findSummaries_pagesFilteredCardsWithoutLoadingEntities() {
+        CardFilterRequest filter = new CardFilterRequest();
+        filter.setStatus(CardStatus.ACTIVE);
+        filter.setMinBalance(new BigDecimal("900000"));
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Page<CardSummary> page = cardRepository.findSummaries(
+                    CardFilter.ownerId(userId).and(CardFilter.matching(filter)),
+                    PageRequest.of(1, 2, Sort.by("id")));
+
+            assertEquals(5, page.getTotalElements());
+            assertEquals(List.of(created.get(2), created.get(3)),
+                    page.getContent().stream().map(CardSummary::id).toList());
+            assertTrue(page.getContent().stream().allMatch(c -> userId.equals(c.ownerId())));
+            assertEquals(new BigDecimal("900002.00"), page.getContent().get(0).balance());
+            assertEquals(0, entityManager.unwrap(SessionImplementor.class)
+                    .getPersistenceContext().getNumberOfManagedEntities());
+        });
+    }
+
+    @Test
+    void findSummarySlice_fetchesOneExtraRowInsteadOfCounting() {
+        Specification<Card> spec = CardFilter.ownerId(userId)
+                .and(CardFilter.balanceGreaterThan(new BigDecimal("900000")));
+
+        Slice<CardSummary> first = cardRepository.findSummarySlice(spec, PageRequest.of(0, 3, Sort.by("id")));
+        Slice<CardSummary> last = cardRepository.findSummarySlice(spec, PageRequest.of(1, 3, Sort.by("id")));
+
+        assertFalse(first instanceof Page);
+        assertEquals(created.subList(0, 3), first.getContent().stream().map(CardSummary::id).toList());
+        assertTrue(first.hasNext());
+        assertEquals(created.subList(3, 5), last.getContent().stream().map(CardSummary::id).toList());
+        assertFalse(last.hasNext());
+    }
+
+    @Test
+    void streamSummaries_allMatchingCardsInIdOrder() {
+        CardFilterRequest filter = new CardFilterRequest();
+        filter.setMinBalance(new BigDecimal("900001"));
+
+        List<Long> ids = transactionTemplate.execute(status -> {
+            try (Stream<CardSummary> rows = cardRepository.streamSummaries(
+                    CardFilter.ownerId(userId).and(CardFilter.matching(filter)))) {
+                return rows.map(CardSummary::id).toList();
+            }
+        });
+
+        assertEquals(created.subList(1, 5), ids);
+    }
+
+    @Test
+    void cardFilterQueries_useCompositeAndPartialIndexes() {
+        // Фон из чужих владельцев и карт, чтобы планировщик не выбрал полный проход по маленькой таблице
+        jdbcTemplate.update("""
+                INSERT INTO users (username, password)
+                SELECT 'filler-' || g, 'x' FROM generate_series(1, 2000) g
+                """);
+        jdbcTemplate.update("""
+                INSERT INTO cards (encrypted_number, pan_last4, owner_id, expiry, status, balance)
+                SELECT 'x', '0000', u.id, DATE '2030-01-01',
+                       CASE WHEN g % 1000 = 0 THEN 'PENDING_BLOCK' WHEN g % 10 = 0 THEN 'BLOCKED' ELSE 'ACTIVE' END,
+                       g % 100000
+                  FROM users u, generate_series(1, 50) s(g)
+                 WHERE u.username LIKE 'filler-%'
+                """);
+        try {
+            jdbcTemplate.execute("ANALYZE cards");
+            Long fillerId = jdbcTemplate.queryForObject(
+                    "SELECT id FROM users WHERE username = 'filler-1000'", Long.class);
+
+            String byStatus = plan("SELECT * FROM cards WHERE owner_id = ? AND status = 'BLOCKED' ORDER BY id LIMIT 20",
+                    fillerId);
+            assertTrue(byStatus.contains("cards_owner_status_idx"), byStatus);
+            String byBalance = plan("SELECT * FROM cards WHERE owner_id = ? AND balance >= 40 ORDER BY id LIMIT 20",
+                    fillerId);
+            assertTrue(byBalance.contains("cards_owner_balance_idx"), byBalance);
+
+            String queue = plan("SELECT * FROM cards WHERE status = 'PENDING_BLOCK' ORDER BY id LIMIT 20");
+            assertTrue(queue.contains("Index Scan using cards_pending_block_idx"), queue);
+            assertFalse(queue.matches("(?s).*\\bSort\\s+\\(cost.*"), queue);
+        } finally {
+            jdbcTemplate.update("DELETE FROM cards WHERE owner_id IN (SELECT id FROM users WHERE username LIKE 'filler-%')");
+            jdbcTemplate.update("DELETE FROM users WHERE username LIKE 'filler-%'");
+        }
+    }
+
+    private String plan(String sql, Object... args) {
+        return String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, args));
+    }
+}
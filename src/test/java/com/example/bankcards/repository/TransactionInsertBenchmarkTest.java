@@ -0,0 +1,162 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.BaseIntegrationTest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.entity.TransactionStatus;
+import com.example.bankcards.service.AdminCardService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Скорость вставки транзакций:
+ * <ul>
+ *     <li>построчные INSERT с возвратом ключа — так Hibernate пишет при {@code GenerationType.IDENTITY};</li>
+ *     <li>пакетные INSERT Hibernate с ID из последовательности (pooled-lo) и профилем {@code prod};</li>
+ *     <li>пакетные INSERT через JDBC, как в пакетном переводе.</li>
+ * </ul>
+ *
+ * <p>Запуск: {@code mvn test -Pbenchmark}; число строк — {@code -Dbenchmark.rows}.
+ * Выигрыш пакетов растёт с сетевой задержкой до БД: на локальном встроенном
+ * PostgreSQL он заметно меньше, чем при удалённой базе.</p>
+ */
+@Tag("benchmark")
+@ActiveProfiles("prod")
+class TransactionInsertBenchmarkTest extends BaseIntegrationTest {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 100_000);
+    private static final int CHUNK = 1_000;
+    private static final int WARMUP_ROWS = 5_000;
+
+    @Autowired
+    private AdminCardService adminCardService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long fromId;
+    private Long toId;
+
+    @BeforeEach
+    void setUp() {
+        fromId = adminCardService.createCard("user", BigDecimal.ZERO, 3).getId();
+        toId = adminCardService.createCard("user", BigDecimal.ZERO, 3).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transactions WHERE from_card_id = ?", fromId);
+        jdbcTemplate.update("DELETE FROM cards WHERE id IN (?, ?)", fromId, toId);
+    }
+
+    @Test
+    void insertTransactions_rowByRowVersusBatched() {
+        measure(this::insertRowByRow, WARMUP_ROWS);
+        measure(this::insertBatched, WARMUP_ROWS);
+        measure(this::insertJdbcBatch, WARMUP_ROWS);
+
+        long rowByRow = measure(this::insertRowByRow, ROWS);
+        long batched = measure(this::insertBatched, ROWS);
+        long jdbcBatch = measure(this::insertJdbcBatch, ROWS);
+
+        System.out.printf("%n[benchmark] %d транзакций%n", ROWS);
+        System.out.printf("[benchmark] IDENTITY, построчно:          %,10.0f вставок/с%n", ROWS * 1e9 / rowByRow);
+        System.out.printf("[benchmark] pooled-lo, пакеты Hibernate:  %,10.0f вставок/с%n", ROWS * 1e9 / batched);
+        System.out.printf("[benchmark] пакеты JDBC:                  %,10.0f вставок/с%n", ROWS * 1e9 / jdbcBatch);
+    }
+
+    private long measure(IntConsumer insert, int rows) {
+        jdbcTemplate.update("DELETE FROM transactions WHERE from_card_id = ?", fromId);
+        long start = System.nanoTime();
+        insert.accept(rows);
+        long elapsed = System.nanoTime() - start;
+        assertEquals(rows, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE from_card_id = ?", Integer.class, fromId));
+        return elapsed;
+    }
+
+    /**
+     * Одна вставка и один обмен с БД на строку, ID возвращается через RETURNING.
+     */
+    private void insertRowByRow(int rows) {
+        for (int offset = 0; offset < rows; offset += CHUNK) {
+            int size = Math.min(CHUNK, rows - offset);
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < size; i++) {
+                    jdbcTemplate.queryForObject("""
+                                    INSERT INTO transactions (from_card_id, to_card_id, amount, currency, status, description, created_at)
+                                    VALUES (?, ?, ?, 'RUB', 'COMPLETED', 'benchmark', ?) RETURNING id
+                                    """, Long.class,
+                            fromId, toId, BigDecimal.ONE, Timestamp.valueOf(LocalDateTime.now()));
+                }
+            });
+        }
+    }
+
+    /**
+     * Сохранение сущностей через Hibernate: ID берутся из блока в памяти, INSERT уходят пакетами.
+     */
+    private void insertBatched(int rows) {
+        for (int offset = 0; offset < rows; offset += CHUNK) {
+            int size = Math.min(CHUNK, rows - offset);
+            transactionTemplate.executeWithoutResult(status -> {
+                Card from = entityManager.getReference(Card.class, fromId);
+                Card to = entityManager.getReference(Card.class, toId);
+                for (int i = 0; i < size; i++) {
+                    entityManager.persist(Transaction.builder()
+                            .fromCard(from)
+                            .toCard(to)
+                            .amount(BigDecimal.ONE)
+                            .currency("RUB")
+                            .status(TransactionStatus.COMPLETED)
+                            .description("benchmark")
+                            .createdAt(LocalDateTime.now())
+                            .build());
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+        }
+    }
+
+    /**
+     * Пакетная вставка через JDBC без сущностей, ID из значения по умолчанию.
+     */
+    private void insertJdbcBatch(int rows) {
+        for (int offset = 0; offset < rows; offset += CHUNK) {
+            int size = Math.min(CHUNK, rows - offset);
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Object[]> args = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    args.add(new Object[]{fromId, toId, BigDecimal.ONE, Timestamp.valueOf(LocalDateTime.now())});
+                }
+                jdbcTemplate.batchUpdate("""
+                        INSERT INTO transactions (from_card_id, to_card_id, amount, currency, status, description, created_at)
+                        VALUES (?, ?, ?, 'RUB', 'COMPLETED', 'benchmark', ?)
+                        """, args);
+            });
+        }
+    }
+}
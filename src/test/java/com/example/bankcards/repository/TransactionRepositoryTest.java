@@ -0,0 +1,169 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.BaseIntegrationTest;
+import com.example.bankcards.entity.Transaction;
+import com.example.bankcards.service.AdminCardService;
+import com.example.bankcards.service.TransactionCursor;
+import com.example.bankcards.service.TransactionService;
+import jakarta.persistence.EntityManager;
+import org.hibernate.engine.spi.PersistenceContext;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionRepositoryTest extends BaseIntegrationTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AdminCardService adminCardService;
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long cardId;
+    private Long otherId;
+
+    @BeforeEach
+    void setUp() {
+        cardId = adminCardService.createCard("user", BigDecimal.ZERO, 3).getId();
+        otherId = adminCardService.createCard("user", BigDecimal.ZERO, 3).getId();
+
+        // По три транзакции на одно и то же время: порядок внутри определяет id
+        for (int i = 0; i < 40; i++) {
+            LocalDateTime createdAt = START.plusMinutes(i / 3);
+            if (i % 2 == 0) {
+                insert(cardId, otherId, createdAt);
+            } else {
+                insert(otherId, cardId, createdAt);
+            }
+        }
+        insert(cardId, cardId, START.plusMinutes(5));
+        insert(otherId, otherId, START.plusMinutes(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM transactions WHERE from_card_id IN (?, ?) OR to_card_id IN (?, ?)",
+                cardId, otherId, cardId, otherId);
+        jdbcTemplate.update("DELETE FROM cards WHERE id IN (?, ?)", cardId, otherId);
+    }
+
+    @Test
+    void findPageByCardId_walksHistoryNewestFirstWithoutGapsOrDuplicates() {
+        List<Transaction> walked = new ArrayList<>();
+        TransactionCursor cursor = TransactionCursor.FIRST;
+        while (true) {
+            List<Transaction> page = transactionRepository.findPageByCardId(
+                    cardId, cursor.createdAt(), cursor.id(), 7);
+            walked.addAll(page);
+            if (page.size() < 7) {
+                break;
+            }
+            cursor = TransactionCursor.decode(TransactionCursor.after(page.get(page.size() - 1)).encode());
+        }
+
+        assertEquals(41, walked.size());
+        assertEquals(41, walked.stream().map(Transaction::getId).distinct().count());
+        assertEquals(walked, walked.stream()
+                .sorted(Comparator.comparing(Transaction::getCreatedAt)
+                        .thenComparing(Transaction::getId)
+                        .reversed())
+                .toList());
+    }
+
+    @Test
+    void findPageByCardId_usesCompositeIndexRangeScans() throws Exception {
+        // Фон из чужих транзакций, чтобы планировщик не выбрал полный проход по маленькой таблице
+        jdbcTemplate.update("""
+                INSERT INTO transactions (amount, currency, status, description, created_at)
+                SELECT 1, 'RUB', 'COMPLETED', 'filler', TIMESTAMP '2024-01-01' + g * INTERVAL '1 second'
+                  FROM generate_series(1, 50000) g
+                """);
+        try {
+            jdbcTemplate.execute("ANALYZE transactions");
+
+            String sql = TransactionRepository.class
+                    .getMethod("findPageByCardId", Long.class, LocalDateTime.class, Long.class, int.class)
+                    .getAnnotation(Query.class)
+                    .value();
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("cardId", cardId)
+                    .addValue("createdAt", Timestamp.valueOf(START.plusMinutes(10)))
+                    .addValue("id", Long.MAX_VALUE)
+                    .addValue("limit", 20);
+            String plan = String.join("\n", new NamedParameterJdbcTemplate(jdbcTemplate)
+                    .queryForList("EXPLAIN " + sql, params, String.class));
+
+            // Две обратные диапазонные выборки по составным индексам, слитые без сортировки
+            assertTrue(plan.contains("Index Scan Backward using transactions_from_created_idx"), plan);
+            assertTrue(plan.contains("Index Scan Backward using transactions_to_created_idx"), plan);
+            assertFalse(plan.contains("Seq Scan"), plan);
+            assertFalse(plan.contains("BitmapOr"), plan);
+            assertFalse(plan.matches("(?s).*\\bSort\\s+\\(cost.*"), plan);
+        } finally {
+            jdbcTemplate.update("DELETE FROM transactions WHERE description = 'filler'");
+        }
+    }
+
+    @Test
+    void streamUserCardTransactions_periodOldestFirstWithoutGrowingPersistenceContext() {
+        List<Transaction> streamed = new ArrayList<>();
+        List<Integer> managed = new ArrayList<>();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            PersistenceContext context = entityManager.unwrap(SessionImplementor.class).getPersistenceContext();
+            transactionService.streamUserCardTransactions("user", cardId,
+                    START.plusMinutes(2), START.plusMinutes(10), t -> {
+                        streamed.add(t);
+                        managed.add(context.getNumberOfManagedEntities());
+                    });
+        });
+
+        // Минуты 2..9 по три транзакции плюс перевод карты самой себе на 5-й минуте
+        assertEquals(25, streamed.size());
+        assertEquals(25, streamed.stream().map(Transaction::getId).distinct().count());
+        assertTrue(streamed.stream().allMatch(t -> !t.getCreatedAt().isBefore(START.plusMinutes(2))
+                && t.getCreatedAt().isBefore(START.plusMinutes(10))));
+        assertEquals(streamed, streamed.stream()
+                .sorted(Comparator.comparing(Transaction::getCreatedAt).thenComparing(Transaction::getId))
+                .toList());
+        assertEquals(1, managed.stream().distinct().count(), managed::toString);
+    }
+
+    private void insert(Long fromId, Long toId, LocalDateTime createdAt) {
+        jdbcTemplate.update("""
+                        INSERT INTO transactions (from_card_id, to_card_id, amount, currency, status, description, created_at)
+                        VALUES (?, ?, 1, 'RUB', 'COMPLETED', 'test', ?)
+                        """,
+                fromId, toId, Timestamp.valueOf(createdAt));
+    }
+}
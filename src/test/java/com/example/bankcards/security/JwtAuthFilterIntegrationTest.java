@@ -0,0 +1,130 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.BaseIntegrationTest;
+import com.example.bankcards.service.AdminUserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Аутентификация в режиме {@code jwt.stateless}: без загрузки пользователя,
+ * но с отзывом токенов после смены ролей.
+ */
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+@TestPropertySource(properties = {"jwt.stateless=true", "prometheus.scrape-token=" + JwtAuthFilterIntegrationTest.SCRAPE_TOKEN})
+class JwtAuthFilterIntegrationTest extends BaseIntegrationTest {
+
+    static final String SCRAPE_TOKEN = "test-scrape-token";
+
+    private static final Long USER_ID = 2L;
+    private static final String CARD_HISTORY = "/api/user/transactions/2/get";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private AdminUserService adminUserService;
+
+    @SpyBean
+    private UserDetailsServiceImpl userDetailsService;
+
+    private String token;
+
+    @BeforeEach
+    void setUp() {
+        token = jwtUtil.generateToken(userDetailsService.loadUserByUsername("user"));
+        clearInvocations(userDetailsService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        adminUserService.removeRole(USER_ID, "ROLE_ADMIN");
+    }
+
+    @Test
+    void statelessToken_authenticatesWithoutLoadingUser() throws Exception {
+        mockMvc.perform(get(CARD_HISTORY).header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+        mockMvc.perform(get(CARD_HISTORY).header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        verify(userDetailsService, never()).loadUserByUsername(any());
+    }
+
+    @Test
+    void roleChange_revokesIssuedToken() throws Exception {
+        mockMvc.perform(get(CARD_HISTORY).header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+
+        adminUserService.addRole(USER_ID, "ROLE_ADMIN");
+
+        mockMvc.perform(get(CARD_HISTORY).header("Authorization", "Bearer " + token))
+                .andExpect(status().isUnauthorized());
+        String reissued = jwtUtil.generateToken(userDetailsService.loadUserByUsername("user"));
+        mockMvc.perform(get("/api/admin/users/get-all").header("Authorization", "Bearer " + reissued))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void actuator_healthPublic_metricsAdminOnly() throws Exception {
+        // Фильтр сверяет servletPath, который MockMvc по умолчанию оставляет пустым
+        mockMvc.perform(get("/actuator/health").servletPath("/actuator/health"))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/metrics/cache.gets").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+
+        String admin = jwtUtil.generateToken(userDetailsService.loadUserByUsername("admin"));
+        mockMvc.perform(get("/actuator/metrics/cache.gets")
+                        .param("tag", "cache:userDetails")
+                        .header("Authorization", "Bearer " + admin))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void prometheus_adminOnly_exposesApplicationMetrics() throws Exception {
+        mockMvc.perform(get(CARD_HISTORY).header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/actuator/prometheus").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+
+        String admin = jwtUtil.generateToken(userDetailsService.loadUserByUsername("admin"));
+        mockMvc.perform(get("/actuator/prometheus").header("Authorization", "Bearer " + admin))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("bank_jwt_verify_seconds_bucket")))
+                .andExpect(content().string(containsString("bank_user_load_seconds_count")))
+                .andExpect(content().string(containsString(
+                        "bank_http_sql_statements_count{application=\"bank-rest\",method=\"GET\",uri=\"/api/user/transactions/{cardId}/get\"}")))
+                .andExpect(content().string(containsString("hikaricp_connections_active")));
+    }
+
+    @Test
+    void prometheus_scrapeToken_grantsOnlyScrapeEndpoint() throws Exception {
+        mockMvc.perform(get("/actuator/prometheus").servletPath("/actuator/prometheus")
+                        .header("Authorization", "Bearer " + SCRAPE_TOKEN))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("bank_jwt_verify_seconds")));
+
+        mockMvc.perform(get("/actuator/prometheus").servletPath("/actuator/prometheus")
+                        .header("Authorization", "Bearer wrong-" + SCRAPE_TOKEN))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/metrics").servletPath("/actuator/metrics")
+                        .header("Authorization", "Bearer " + SCRAPE_TOKEN))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.BaseIntegrationTest;
+import com.example.bankcards.service.AdminUserService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Аутентификация по умолчанию: роли загружаются из БД на каждый запрос,
+ * поэтому смена ролей применяется сразу и не отзывает выданный токен.
+ */
+@AutoConfigureMockMvc
+class JwtAuthFilterStatefulIntegrationTest extends BaseIntegrationTest {
+
+    private static final Long USER_ID = 2L;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private AdminUserService adminUserService;
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+
+    @AfterEach
+    void tearDown() {
+        adminUserService.removeRole(USER_ID, "ROLE_ADMIN");
+    }
+
+    @Test
+    void roleChange_keepsIssuedTokenAndAppliesNewRoles() throws Exception {
+        String token = jwtUtil.generateToken(userDetailsService.loadUserByUsername("user"));
+        mockMvc.perform(get("/api/admin/users/get-all").header("Authorization", "Bearer " + token))
+                .andExpect(status().isForbidden());
+
+        adminUserService.addRole(USER_ID, "ROLE_ADMIN");
+
+        mockMvc.perform(get("/api/admin/users/get-all").header("Authorization", "Bearer " + token))
+                .andExpect(status().isOk());
+    }
+}
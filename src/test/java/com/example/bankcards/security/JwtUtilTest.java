@@ -0,0 +1,90 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.security.SignatureException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JwtUtilTest {
+
+    private static final String SECRET = "ZEdRajRPSUlyOVFOTjIxTGhUWERKVDZJTU5NWFJBZHphZDk0SkpGWHRxQg==";
+
+    private final UserDetails user = new User("user", "password",
+            List.of(new SimpleGrantedAuthority("ROLE_USER")));
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    void setUp() {
+        jwtUtil = jwtUtil(3_600_000L);
+    }
+
+    @Test
+    void verify_validToken_returnsClaims() {
+        JwtClaims claims = jwtUtil.verify(jwtUtil.generateToken(user));
+
+        assertEquals("user", claims.username());
+        assertEquals(Set.of("ROLE_USER"), claims.roles());
+        assertTrue(claims.expiresAt().isAfter(Instant.now()));
+    }
+
+    @Test
+    void verify_databaseUser_carriesIdAndTokenVersion() {
+        com.example.bankcards.entity.User entity = com.example.bankcards.entity.User.builder()
+                .id(7L)
+                .username("user")
+                .password("password")
+                .tokenVersion(3)
+                .roles(Set.of(Role.builder().name("ROLE_USER").build()))
+                .build();
+
+        JwtClaims claims = jwtUtil.verify(jwtUtil.generateToken(new UserDetailsImpl(entity)));
+
+        assertEquals(7L, claims.userId());
+        assertEquals(3L, claims.tokenVersion());
+        assertEquals(Set.of("ROLE_USER"), claims.roles());
+    }
+
+    @Test
+    void verify_tokenWithoutUserId_hasNoVersion() {
+        JwtClaims claims = jwtUtil.verify(jwtUtil.generateToken(user));
+
+        assertNull(claims.userId());
+        assertNull(claims.tokenVersion());
+    }
+
+    @Test
+    void verify_tamperedSignature_rejected() {
+        String token = jwtUtil.generateToken(user);
+        String tampered = token.substring(0, token.length() - 2)
+                + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(SignatureException.class, () -> jwtUtil.verify(tampered));
+    }
+
+    @Test
+    void verify_expiredToken_rejected() {
+        String token = jwtUtil(-1_000L).generateToken(user);
+
+        assertThrows(ExpiredJwtException.class, () -> jwtUtil.verify(token));
+    }
+
+    private static JwtUtil jwtUtil(long expirationMs) {
+        JwtUtil util = new JwtUtil();
+        ReflectionTestUtils.setField(util, "secret", SECRET);
+        ReflectionTestUtils.setField(util, "expirationMs", expirationMs);
+        util.init();
+        return util;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.BenchmarkOptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Запуск {@link JwtVerificationBenchmark}: {@code mvn test -Pbenchmark}.
+ * Замер идёт в одном потоке, то есть результат — операций в секунду на одно ядро.
+ */
+@Tag("benchmark")
+class JwtVerificationBenchmarkTest {
+
+    @Test
+    void verifyOnce_versusLegacy() throws Exception {
+        BenchmarkOptions.run(JwtVerificationBenchmark.class, 1, 3);
+    }
+}
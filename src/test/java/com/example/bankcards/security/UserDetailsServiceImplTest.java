@@ -0,0 +1,85 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.entity.Role;
+import com.example.bankcards.entity.User;
+import com.example.bankcards.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserDetailsServiceImplTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private UserDetailsServiceImpl userDetailsService;
+
+    @BeforeEach
+    void setUp() {
+        userDetailsService = new UserDetailsServiceImpl(userRepository, meterRegistry);
+        ReflectionTestUtils.setField(userDetailsService, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(userDetailsService, "maxSize", 100L);
+        userDetailsService.init();
+    }
+
+    @Test
+    void loadUserByUsername_repeatedCall_servedFromCache() {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user()));
+
+        UserDetails first = userDetailsService.loadUserByUsername("user");
+        UserDetails second = userDetailsService.loadUserByUsername("user");
+
+        assertSame(first, second);
+        assertEquals("ROLE_USER", first.getAuthorities().iterator().next().getAuthority());
+        verify(userRepository, times(1)).findByUsername("user");
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "userDetails").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1, meterRegistry.get("cache.gets").tag("cache", "userDetails").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    void onUserSecurityChanged_evictsUser() {
+        when(userRepository.findByUsername("user")).thenReturn(Optional.of(user()));
+        userDetailsService.loadUserByUsername("user");
+
+        userDetailsService.onUserSecurityChanged(new UserSecurityChangedEvent(2L, "user"));
+        userDetailsService.loadUserByUsername("user");
+
+        verify(userRepository, times(2)).findByUsername("user");
+    }
+
+    @Test
+    void loadUserByUsername_unknownUser_notCached() {
+        when(userRepository.findByUsername("ghost")).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("ghost"));
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadUserByUsername("ghost"));
+
+        verify(userRepository, times(2)).findByUsername("ghost");
+    }
+
+    private static User user() {
+        return User.builder()
+                .id(2L)
+                .username("user")
+                .password("hash")
+                .roles(Set.of(Role.builder().name("ROLE_USER").build()))
+                .build();
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.CardFilterRequest;
+import com.example.bankcards.dto.CardSummary;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.entity.User;
@@ -11,6 +13,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -19,6 +26,8 @@ import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -29,6 +38,12 @@ public class AdminCardServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private CardEncryptionService cardEncryptionService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private AdminCardService adminCardService;
 
@@ -44,6 +59,8 @@ public class AdminCardServiceTest {
 
         when(cardRepository.save(any(Card.class)))
                 .thenAnswer(invocation -> invocation.getArgument(0));
+        when(cardEncryptionService.encryptPan(anyString()))
+                .thenReturn(new CardEncryptionService.EncryptedPan(7, "ciphertext"));
 
         int expiresInYears = 3;
 
@@ -58,7 +75,9 @@ public class AdminCardServiceTest {
         assertEquals(BigDecimal.valueOf(1000), card.getBalance());
         assertEquals(LocalDate.now().plusYears(expiresInYears), card.getExpiry());
         assertEquals(user, card.getOwner());
-        assertNotNull(card.getEncryptedNumber());
+        assertEquals("ciphertext", card.getEncryptedNumber());
+        assertEquals(7, card.getKeyId());
+        assertNull(card.getAesKey());
         assertNotNull(card.getMaskedNumber());
 
         verify(userRepository).findByUsername("test");
@@ -79,6 +98,7 @@ public class AdminCardServiceTest {
 
         assertEquals(CardStatus.BLOCKED, card.getStatus());
         verify(cardRepository).save(card);
+        verify(eventPublisher).publishEvent(new CardChangedEvent(1L));
     }
 
     @Test
@@ -97,6 +117,7 @@ public class AdminCardServiceTest {
         );
 
         verify(cardRepository, never()).save(any());
+        verifyNoInteractions(eventPublisher);
     }
 
     @Test
@@ -113,20 +134,20 @@ public class AdminCardServiceTest {
 
         assertEquals(CardStatus.ACTIVE, card.getStatus());
         verify(cardRepository).save(card);
+        verify(eventPublisher).publishEvent(new CardChangedEvent(1L));
     }
 
     @Test
-    void getAllCards_success() {
-        Card card1 = Card.builder().panLast4("1234").build();
-        Card card2 = Card.builder().panLast4("5678").build();
-
-        when(cardRepository.findAll())
-                .thenReturn(List.of(card1, card2));
+    void getCards_delegatesToProjection() {
+        CardSummary summary = new CardSummary(1L, 2L, "1234", CardStatus.ACTIVE,
+                BigDecimal.TEN, LocalDate.now().plusYears(1), "RUB");
+        Pageable pageable = PageRequest.of(0, 20);
+        when(cardRepository.findSummaries(any(), eq(pageable)))
+                .thenReturn(new PageImpl<>(List.of(summary), pageable, 1));
 
-        List<Card> cards = adminCardService.getAllCards();
+        Page<CardSummary> cards = adminCardService.getCards(new CardFilterRequest(), 2L, pageable);
 
-        assertEquals(2, cards.size());
-        assertNotNull(cards.get(0).getMaskedNumber());
-        assertNotNull(cards.get(1).getMaskedNumber());
+        assertEquals(List.of(summary), cards.getContent());
+        verify(cardRepository, never()).findAll();
     }
 }
\ No newline at end of file
@@ -9,13 +9,16 @@ import com.example.bankcards.exception.RolesIsEmptyException;
 import com.example.bankcards.exception.UserAlreadyExistsException;
 import com.example.bankcards.repository.RoleRepository;
 import com.example.bankcards.repository.UserRepository;
+import com.example.bankcards.security.UserSecurityChangedEvent;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -34,6 +37,9 @@ public class AdminUserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private AdminUserService adminUserService;
 
@@ -51,7 +57,7 @@ public class AdminUserServiceTest {
                 .build();
 
         when(userRepository.existsByUsername("test")).thenReturn(false);
-        when(roleRepository.findByName("USER")).thenReturn(Optional.of(userRole));
+        when(roleRepository.findAllByNameIn(Set.of("USER"))).thenReturn(List.of(userRole));
         when(passwordEncoder.encode("password")).thenReturn("encoded-password");
         when(userRepository.save(any(User.class)))
                 .thenAnswer(inv -> inv.getArgument(0));
@@ -65,7 +71,7 @@ public class AdminUserServiceTest {
         assertTrue(savedUser.getRoles().contains(userRole));
 
         verify(userRepository).existsByUsername("test");
-        verify(roleRepository).findByName("USER");
+        verify(roleRepository).findAllByNameIn(Set.of("USER"));
         verify(passwordEncoder).encode("password");
         verify(userRepository).save(any(User.class));
     }
@@ -105,7 +111,7 @@ public class AdminUserServiceTest {
         request.setRoles(Set.of("ADMIN"));
 
         when(userRepository.existsByUsername("test")).thenReturn(false);
-        when(roleRepository.findByName("ADMIN")).thenReturn(Optional.empty());
+        when(roleRepository.findAllByNameIn(Set.of("ADMIN"))).thenReturn(List.of());
 
         assertThrows(RoleNotFoundException.class,
                 () -> adminUserService.createUser(request));
@@ -115,6 +121,7 @@ public class AdminUserServiceTest {
     void updateRoles_success() {
         User user = User.builder()
                 .id(1L)
+                .username("test")
                 .roles(Set.of())
                 .build();
 
@@ -124,7 +131,7 @@ public class AdminUserServiceTest {
                 .build();
 
         when(userRepository.findById(1L)).thenReturn(Optional.of(user));
-        when(roleRepository.findByName("ADMIN")).thenReturn(Optional.of(adminRole));
+        when(roleRepository.findAllByNameIn(Set.of("ADMIN"))).thenReturn(List.of(adminRole));
 
         UpdateUserRolesRequest request = new UpdateUserRolesRequest();
         request.setRoles(Set.of("ADMIN"));
@@ -132,6 +139,8 @@ public class AdminUserServiceTest {
         adminUserService.updateRoles(1L, request);
 
         assertTrue(user.getRoles().contains(adminRole));
+        assertEquals(1, user.getTokenVersion());
         verify(userRepository).save(user);
+        verify(eventPublisher).publishEvent(new UserSecurityChangedEvent(1L, "test"));
     }
 }
\ No newline at end of file
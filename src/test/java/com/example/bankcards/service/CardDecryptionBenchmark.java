@@ -0,0 +1,71 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.util.EncryptionUtils;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Расшифровка страницы карт для {@code GET /api/user/cards/get-decrypted}:
+ * по одной карте в потоке запроса против {@link CardEncryptionService#decryptPans}.
+ *
+ * <p>Запускается из {@link CardDecryptionBenchmarkTest}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardDecryptionBenchmark {
+
+    /** Не меньше двух частей, чтобы параллельный путь замерялся и на одноядерной машине. */
+    private static final int PARALLELISM = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    @Param({"20", "200", "2000"})
+    private int pageSize;
+
+    private CardEncryptionService cardEncryptionService;
+    private List<Card> cards;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        cardEncryptionService = new CardEncryptionService(null, null, null);
+        ReflectionTestUtils.setField(cardEncryptionService, "decryptParallelism", PARALLELISM);
+        SecretKey key = EncryptionUtils.generateDataKey();
+        ((Map<Integer, SecretKey>) ReflectionTestUtils.getField(cardEncryptionService, "keys")).put(1, key);
+        cards = IntStream.range(0, pageSize)
+                .mapToObj(i -> Card.builder()
+                        .keyId(1)
+                        .encryptedNumber(EncryptionUtils.encrypt(String.format("4000 0000 0000 %04d", i), key))
+                        .build())
+                .toList();
+    }
+
+    @TearDown
+    public void tearDown() {
+        cardEncryptionService.shutdown();
+    }
+
+    @Benchmark
+    public List<String> sequential() {
+        List<String> pans = new ArrayList<>(cards.size());
+        for (Card card : cards) {
+            pans.add(cardEncryptionService.decryptPan(card));
+        }
+        return pans;
+    }
+
+    @Benchmark
+    public List<String> bulk() {
+        return cardEncryptionService.decryptPans(cards);
+    }
+}
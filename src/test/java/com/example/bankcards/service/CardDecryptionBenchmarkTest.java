@@ -0,0 +1,18 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.BenchmarkOptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Запуск {@link CardDecryptionBenchmark}: {@code mvn test -Pbenchmark}.
+ * Один поток — задержка одного запроса страницы при свободных ядрах.
+ */
+@Tag("benchmark")
+class CardDecryptionBenchmarkTest {
+
+    @Test
+    void bulk_versusSequential() throws Exception {
+        BenchmarkOptions.run(CardDecryptionBenchmark.class, 1, 6);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.BaseIntegrationTest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.util.EncryptionUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Шифрование номеров карт ключами данных из кольца.
+ */
+class CardEncryptionServiceIntegrationTest extends BaseIntegrationTest {
+
+    /** Карта пользователя из начальных данных: номер и собственный ключ до перешифровки. */
+    private static final String SEED_CIPHERTEXT = "Z5bqAhb7OVJUAMyhTJDLeb2v8BhChEy+adJDPMbiN3M=";
+    private static final String SEED_AES_KEY = "qHn3qAydez1cscTZBLl49ZtX90WMUBClfxOT3m99HGU=";
+
+    @Autowired
+    private CardEncryptionService cardEncryptionService;
+
+    @Autowired
+    private AdminCardService adminCardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> createdCards = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        createdCards.forEach(id -> jdbcTemplate.update("DELETE FROM cards WHERE id = ?", id));
+    }
+
+    @Test
+    void seedCards_reencryptedWithDataKeyOnStartup() {
+        String pan = EncryptionUtils.decrypt(SEED_CIPHERTEXT, SEED_AES_KEY);
+        Card card = cardRepository.findById(2L).orElseThrow();
+
+        assertNotNull(card.getKeyId());
+        assertNull(card.getAesKey());
+        assertTrue(EncryptionUtils.isGcm(card.getEncryptedNumber()));
+        assertEquals(pan, cardEncryptionService.decryptPan(card));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM cards WHERE key_id IS NULL OR aes_key IS NOT NULL "
+                        + "OR encrypted_number NOT LIKE 'gcm1:%'", Integer.class));
+    }
+
+    @Test
+    void legacyCard_readableUntilReencrypted() {
+        Card card = adminCardService.createCard("user", BigDecimal.ZERO, 3);
+        createdCards.add(card.getId());
+        String pan = cardEncryptionService.decryptPan(card);
+        String legacyKey = EncryptionUtils.generateAesKey();
+        jdbcTemplate.update("UPDATE cards SET encrypted_number = ?, aes_key = ?, key_id = NULL WHERE id = ?",
+                EncryptionUtils.encrypt(pan, legacyKey), legacyKey, card.getId());
+
+        Card legacy = cardRepository.findById(card.getId()).orElseThrow();
+        assertEquals(pan, cardEncryptionService.decryptPan(legacy));
+
+        cardEncryptionService.reencryptLegacyCards();
+
+        Card reencrypted = cardRepository.findById(card.getId()).orElseThrow();
+        assertNotNull(reencrypted.getKeyId());
+        assertNull(reencrypted.getAesKey());
+        assertEquals(pan, cardEncryptionService.decryptPan(reencrypted));
+        // Строка, прочитанная до перешифровки, не может записать прежний номер обратно
+        legacy.setBalance(BigDecimal.ONE);
+        assertThrows(OptimisticLockingFailureException.class, () -> cardRepository.save(legacy));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void ecbCardWithDataKey_readableUntilReencrypted() throws Exception {
+        Card card = adminCardService.createCard("user", BigDecimal.ZERO, 3);
+        createdCards.add(card.getId());
+        String pan = cardEncryptionService.decryptPan(card);
+        Object target = AopTestUtils.getUltimateTargetObject(cardEncryptionService);
+        SecretKey key = ((Map<Integer, SecretKey>) ReflectionTestUtils.getField(target, "keys")).get(card.getKeyId());
+        Cipher ecb = Cipher.getInstance("AES");
+        ecb.init(Cipher.ENCRYPT_MODE, key);
+        jdbcTemplate.update("UPDATE cards SET encrypted_number = ? WHERE id = ?",
+                Base64.getEncoder().encodeToString(ecb.doFinal(pan.getBytes(StandardCharsets.UTF_8))), card.getId());
+
+        Card legacy = cardRepository.findById(card.getId()).orElseThrow();
+        assertFalse(EncryptionUtils.isGcm(legacy.getEncryptedNumber()));
+        assertEquals(pan, cardEncryptionService.decryptPan(legacy));
+
+        cardEncryptionService.reencryptLegacyCards();
+
+        Card reencrypted = cardRepository.findById(card.getId()).orElseThrow();
+        assertTrue(EncryptionUtils.isGcm(reencrypted.getEncryptedNumber()));
+        assertEquals(pan, cardEncryptionService.decryptPan(reencrypted));
+    }
+
+    @Test
+    void rotate_newCardsUseNewKey_oldCardsStayReadable() {
+        Card before = adminCardService.createCard("user", BigDecimal.ZERO, 3);
+        createdCards.add(before.getId());
+
+        Integer newKeyId = cardEncryptionService.rotate();
+        Card after = adminCardService.createCard("user", BigDecimal.ZERO, 3);
+        createdCards.add(after.getId());
+
+        assertEquals(newKeyId, after.getKeyId());
+        assertNotEquals(before.getKeyId(), after.getKeyId());
+
+        // Без кэша ключи разворачиваются заново из data_keys мастер-ключом
+        Object target = AopTestUtils.getUltimateTargetObject(cardEncryptionService);
+        ((Map<?, ?>) ReflectionTestUtils.getField(target, "keys")).clear();
+
+        assertEquals(before.getPanLast4(), last4(cardEncryptionService.decryptPan(
+                cardRepository.findById(before.getId()).orElseThrow())));
+        assertEquals(after.getPanLast4(), last4(cardEncryptionService.decryptPan(
+                cardRepository.findById(after.getId()).orElseThrow())));
+    }
+
+    private static String last4(String pan) {
+        return pan.substring(pan.length() - 4);
+    }
+}
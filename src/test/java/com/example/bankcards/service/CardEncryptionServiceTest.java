@@ -0,0 +1,109 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.DataKey;
+import com.example.bankcards.exception.AESDecryptionException;
+import com.example.bankcards.repository.DataKeyRepository;
+import com.example.bankcards.util.EncryptionUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardEncryptionServiceTest {
+
+    private static final String MASTER_KEY = "NSzadqoJV6IMaYinmMnIUT8mMII7UOAB9FEeHIhwac0=";
+
+    @Mock
+    private DataKeyRepository dataKeyRepository;
+
+    @InjectMocks
+    private CardEncryptionService cardEncryptionService;
+
+    private final SecretKey dataKey = EncryptionUtils.generateDataKey();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cardEncryptionService, "masterKey", MASTER_KEY);
+        ReflectionTestUtils.setField(cardEncryptionService, "parallelDecryptThreshold", 16);
+        ReflectionTestUtils.setField(cardEncryptionService, "decryptParallelism", 4);
+        lenient().when(dataKeyRepository.findById(1)).thenReturn(Optional.of(DataKey.builder()
+                .id(1)
+                .wrappedKey(EncryptionUtils.wrapKey(dataKey, EncryptionUtils.decodeKey(MASTER_KEY)))
+                .build()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        cardEncryptionService.shutdown();
+    }
+
+    @Test
+    void checkMasterKey_missingOrMalformed_failsStartup() {
+        cardEncryptionService.checkMasterKey();
+
+        for (String masterKey : new String[]{"", "not-base64!", "c2hvcnQ="}) {
+            ReflectionTestUtils.setField(cardEncryptionService, "masterKey", masterKey);
+            assertThrows(IllegalStateException.class, cardEncryptionService::checkMasterKey, masterKey);
+        }
+    }
+
+    @Test
+    void decryptPans_smallPage_sequential() {
+        List<Card> cards = cards(5);
+
+        assertEquals(pans(5), cardEncryptionService.decryptPans(cards));
+        verify(dataKeyRepository, times(1)).findById(1);
+    }
+
+    @Test
+    void decryptPans_largePage_parallelKeepsOrder() {
+        List<Card> cards = cards(1_000);
+        String legacyKey = EncryptionUtils.generateAesKey();
+        cards.get(500).setKeyId(null);
+        cards.get(500).setAesKey(legacyKey);
+        cards.get(500).setEncryptedNumber(EncryptionUtils.encrypt(pan(500), legacyKey));
+
+        assertEquals(pans(1_000), cardEncryptionService.decryptPans(cards));
+        verify(dataKeyRepository, times(1)).findById(1);
+    }
+
+    @Test
+    void decryptPans_failureInWorker_propagated() {
+        List<Card> cards = cards(100);
+        cards.get(99).setEncryptedNumber("gcm1:AAAA");
+
+        assertThrows(AESDecryptionException.class, () -> cardEncryptionService.decryptPans(cards));
+    }
+
+    private List<Card> cards(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> Card.builder()
+                        .id((long) i)
+                        .keyId(1)
+                        .encryptedNumber(EncryptionUtils.encrypt(pan(i), dataKey))
+                        .build())
+                .toList();
+    }
+
+    private static List<String> pans(int count) {
+        return IntStream.range(0, count).mapToObj(CardEncryptionServiceTest::pan).toList();
+    }
+
+    private static String pan(int i) {
+        return String.format("4000 0000 %04d %04d", i / 10_000, i % 10_000);
+    }
+}
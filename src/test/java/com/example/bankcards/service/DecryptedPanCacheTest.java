@@ -0,0 +1,115 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.security.UserSecurityChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecryptedPanCacheTest {
+
+    private static final String PAN = "4000 3784 9671 4412 9458";
+
+    private final DecryptedPanCache cache = new DecryptedPanCache();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "enabled", true);
+    }
+
+    @Test
+    void get_repeated_loadsOnce() {
+        assertEquals(PAN, cache.get(1L, 10L, this::load));
+        assertEquals(PAN, cache.get(1L, 10L, this::load));
+
+        assertEquals(1, loads.get());
+        assertTrue(buffer(1L).isDirect());
+    }
+
+    @Test
+    void get_disabled_alwaysLoads() {
+        ReflectionTestUtils.setField(cache, "enabled", false);
+
+        cache.get(1L, 10L, this::load);
+        cache.get(1L, 10L, this::load);
+
+        assertEquals(2, loads.get());
+        assertTrue(entries().isEmpty());
+    }
+
+    @Test
+    void get_expired_zeroesAndReloads() {
+        ReflectionTestUtils.setField(cache, "ttlMs", 0L);
+        cache.get(1L, 10L, this::load);
+        ByteBuffer buffer = buffer(1L);
+
+        cache.get(1L, 10L, this::load);
+
+        assertEquals(2, loads.get());
+        assertZeroed(buffer);
+    }
+
+    @Test
+    void onCardChanged_zeroesEntry() {
+        cache.get(1L, 10L, this::load);
+        cache.get(2L, 10L, this::load);
+        ByteBuffer buffer = buffer(1L);
+
+        cache.onCardChanged(new CardChangedEvent(1L));
+
+        assertZeroed(buffer);
+        assertFalse(entries().containsKey(1L));
+        assertTrue(entries().containsKey(2L));
+    }
+
+    @Test
+    void onUserSecurityChanged_zeroesOwnerEntries() {
+        cache.get(1L, 10L, this::load);
+        cache.get(2L, 20L, this::load);
+        ByteBuffer buffer = buffer(1L);
+
+        cache.onUserSecurityChanged(new UserSecurityChangedEvent(10L, "user"));
+
+        assertZeroed(buffer);
+        assertEquals(1, entries().size());
+        assertTrue(entries().containsKey(2L));
+    }
+
+    @Test
+    void sweepExpired_zeroesExpiredEntries() {
+        ReflectionTestUtils.setField(cache, "ttlMs", 0L);
+        cache.get(1L, 10L, this::load);
+        ByteBuffer buffer = buffer(1L);
+
+        cache.sweepExpired();
+
+        assertZeroed(buffer);
+        assertTrue(entries().isEmpty());
+    }
+
+    private String load() {
+        loads.incrementAndGet();
+        return PAN;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, ?> entries() {
+        return (Map<Long, ?>) ReflectionTestUtils.getField(cache, "entries");
+    }
+
+    private ByteBuffer buffer(Long cardId) {
+        return (ByteBuffer) ReflectionTestUtils.invokeGetterMethod(entries().get(cardId), "pan");
+    }
+
+    private static void assertZeroed(ByteBuffer buffer) {
+        for (int i = 0; i < buffer.capacity(); i++) {
+            assertEquals(0, buffer.get(i));
+        }
+    }
+}
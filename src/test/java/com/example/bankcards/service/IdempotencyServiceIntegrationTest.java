@@ -0,0 +1,123 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.BaseIntegrationTest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.IdempotencyKeyReuseException;
+import com.example.bankcards.exception.IdempotentReplayException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Повтор перевода с тем же ключом идемпотентности не выполняет перевод повторно.
+ */
+class IdempotencyServiceIntegrationTest extends BaseIntegrationTest {
+
+    private static final String USERNAME = "user";
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private UserCardService userCardService;
+
+    @Autowired
+    private AdminCardService adminCardService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long fromId;
+    private Long toId;
+
+    @BeforeEach
+    void setUp() {
+        fromId = adminCardService.createCard(USERNAME, new BigDecimal("100.00"), 3).getId();
+        toId = adminCardService.createCard(USERNAME, new BigDecimal("0.00"), 3).getId();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE username = ?", USERNAME);
+        jdbcTemplate.update("DELETE FROM transactions WHERE from_card_id IN (?, ?)", fromId, toId);
+        jdbcTemplate.update("DELETE FROM cards WHERE id IN (?, ?)", fromId, toId);
+        clearCache();
+    }
+
+    @Test
+    void repeatedKey_transfersOnce() {
+        String fingerprint = fromId + ":" + toId + ":30";
+        Consumer<Runnable> transfer = storeOutcome ->
+                userCardService.transferBetweenCards(USERNAME, fromId, toId, new BigDecimal("30"), storeOutcome);
+
+        assertFalse(idempotencyService.execute(USERNAME, "retry-1", fingerprint, transfer));
+        assertTrue(idempotencyService.execute(USERNAME, "retry-1", fingerprint, transfer));
+        clearCache();
+        assertTrue(idempotencyService.execute(USERNAME, "retry-1", fingerprint, transfer));
+
+        assertEquals(0, new BigDecimal("70.00").compareTo(balance(fromId)));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE from_card_id = ?", Integer.class, fromId));
+        assertThrows(IdempotencyKeyReuseException.class,
+                () -> idempotencyService.execute(USERNAME, "retry-1", fromId + ":" + toId + ":31", transfer));
+    }
+
+    @Test
+    void repeatedKey_replaysStoredError() {
+        String fingerprint = fromId + ":" + toId + ":500";
+        Consumer<Runnable> transfer = storeOutcome ->
+                userCardService.transferBetweenCards(USERNAME, fromId, toId, new BigDecimal("500"), storeOutcome);
+
+        assertThrows(InsufficientFundsException.class,
+                () -> idempotencyService.execute(USERNAME, "retry-2", fingerprint, transfer));
+        clearCache();
+        jdbcTemplate.update("UPDATE cards SET balance = 1000 WHERE id = ?", fromId);
+
+        assertThrows(IdempotentReplayException.class,
+                () -> idempotencyService.execute(USERNAME, "retry-2", fingerprint, transfer));
+        assertEquals(0, new BigDecimal("1000.00").compareTo(balance(fromId)));
+    }
+
+    @Test
+    void abandonedKey_takenOverAfterLease() {
+        String fingerprint = fromId + ":" + toId + ":30";
+        Consumer<Runnable> transfer = storeOutcome ->
+                userCardService.transferBetweenCards(USERNAME, fromId, toId, new BigDecimal("30"), storeOutcome);
+        // Процесс, зарегистрировавший ключ, остановился до сохранения результата
+        LocalDateTime now = LocalDateTime.now();
+        jdbcTemplate.update("""
+                INSERT INTO idempotency_keys (username, idempotency_key, request_hash, created_at, locked_until, expires_at)
+                VALUES (?, 'retry-3', 'abandoned', ?, ?, ?)
+                """, USERNAME, now.minusMinutes(2), now.minusMinutes(1), now.plusDays(1));
+
+        assertFalse(idempotencyService.execute(USERNAME, "retry-3", fingerprint, transfer));
+        clearCache();
+        assertTrue(idempotencyService.execute(USERNAME, "retry-3", fingerprint, transfer));
+
+        assertEquals(0, new BigDecimal("70.00").compareTo(balance(fromId)));
+        assertNull(jdbcTemplate.queryForObject(
+                "SELECT locked_until FROM idempotency_keys WHERE username = ? AND idempotency_key = 'retry-3'",
+                LocalDateTime.class, USERNAME));
+    }
+
+    private BigDecimal balance(Long cardId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM cards WHERE id = ?", BigDecimal.class, cardId);
+    }
+
+    private void clearCache() {
+        Object target = AopTestUtils.getUltimateTargetObject(idempotencyService);
+        ((Map<?, ?>) ReflectionTestUtils.getField(target, "cache")).clear();
+    }
+}
@@ -0,0 +1,230 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.entity.IdempotencyRecordId;
+import com.example.bankcards.exception.*;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceTest {
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @InjectMocks
+    private IdempotencyService idempotencyService;
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final Consumer<Runnable> action = storeOutcome -> {
+        executions.incrementAndGet();
+        storeOutcome.run();
+    };
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(idempotencyService, "ttlMs", 60_000L);
+        ReflectionTestUtils.setField(idempotencyService, "leaseMs", 30_000L);
+        ReflectionTestUtils.setField(idempotencyService, "cacheSize", 2);
+    }
+
+    @Test
+    void execute_firstRequest_runsActionAndStoresOutcomeInsideAction() {
+        when(idempotencyRecordRepository.insertIfAbsent(eq("user"), eq("k1"), anyString(), any(), any(), any()))
+                .thenReturn(1);
+        when(idempotencyRecordRepository.complete(eq("user"), eq("k1"), any(), eq(204), isNull())).thenReturn(1);
+
+        assertFalse(idempotencyService.execute("user", "k1", "1:2:10", storeOutcome -> {
+            storeOutcome.run();
+            // Результат записан до выхода из операции, то есть в её транзакции
+            verify(idempotencyRecordRepository).complete(eq("user"), eq("k1"), any(), eq(204), isNull());
+        }));
+    }
+
+    @Test
+    void execute_repeatedKey_replaysFromCacheWithoutDatabase() {
+        when(idempotencyRecordRepository.insertIfAbsent(eq("user"), eq("k1"), anyString(), any(), any(), any()))
+                .thenReturn(1);
+        when(idempotencyRecordRepository.complete(eq("user"), eq("k1"), any(), eq(204), isNull())).thenReturn(1);
+        idempotencyService.execute("user", "k1", "1:2:10", action);
+
+        assertTrue(idempotencyService.execute("user", "k1", "1:2:10", action));
+
+        assertEquals(1, executions.get());
+        verify(idempotencyRecordRepository, times(1)).insertIfAbsent(any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void execute_leaseTakenOver_failsInsideAction() {
+        when(idempotencyRecordRepository.insertIfAbsent(eq("user"), eq("k1"), anyString(), any(), any(), any()))
+                .thenReturn(1);
+        when(idempotencyRecordRepository.complete(eq("user"), eq("k1"), any(), eq(204), isNull())).thenReturn(0);
+
+        assertThrows(IdempotencyKeyInProgressException.class,
+                () -> idempotencyService.execute("user", "k1", "1:2:10", action));
+
+        when(idempotencyRecordRepository.insertIfAbsent(eq("user"), eq("k1"), anyString(), any(), any(), any()))
+                .thenReturn(0);
+        when(idempotencyRecordRepository.findById(new IdempotencyRecordId("user", "k1")))
+                .thenReturn(Optional.empty());
+        assertThrows(IdempotencyKeyInProgressException.class,
+                () -> idempotencyService.execute("user", "k1", "1:2:10", action));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_repeatedKey_replaysStoredOutcomeFromDatabase() throws Exception {
+        IdempotencyRecord stored = storedRecord("1:2:10", 204, null);
+        when(idempotencyRecordRepository.insertIfAbsent(eq("user"), eq("k1"), anyString(), any(), any(), any()))
+                .thenReturn(0);
+        when(idempotencyRecordRepository.findById(new IdempotencyRecordId("user", "k1")))
+                .thenReturn(Optional.of(stored));
+
+        assertTrue(idempotencyService.execute("user", "k1", "1:2:10", action));
+
+        assertEquals(0, executions.get());
+        verify(idempotencyRecordRepository, never()).complete(any(), any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void execute_repeatedKey_replaysStoredError() throws Exception {
+        IdempotencyRecord stored = storedRecord("1:2:10", 400, "Недостаточно средств на карте");
+        when(idempotencyRecordRepository.insertIfAbsent(eq("user"), eq("k1"), anyString(), any(), any(), any()))
+                .thenReturn(0);
+        when(idempotencyRecordRepository.findById(new IdempotencyRecordId("user", "k1")))
+                .thenReturn(Optional.of(stored));
+
+        IdempotentReplayException ex = assertThrows(IdempotentReplayException.class,
+                () -> idempotencyService.execute("user", "k1", "1:2:10", action));
+
+        assertEquals(HttpStatus.BAD_REQUEST, ex.getStatus());
+        assertEquals("Недостаточно средств на карте", ex.getMessage());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_keyInProgress_conflict() throws Exception {
+        IdempotencyRecord stored = storedRecord("1:2:10", null, null);
+        when(idempotencyRecordRepository.insertIfAbsent(eq("user"), eq("k1"), anyString(), any(), any(), any()))
+                .thenReturn(0);
+        when(idempotencyRecordRepository.findById(new IdempotencyRecordId("user", "k1")))
+                .thenReturn(Optional.of(stored));
+
+        assertThrows(IdempotencyKeyInProgressException.class,
+                () -> idempotencyService.execute("user", "k1", "1:2:10", action));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_keyReusedWithOtherParameters_rejected() throws Exception {
+        IdempotencyRecord stored = storedRecord("1:2:10", 204, null);
+        when(idempotencyRecordRepository.insertIfAbsent(eq("user"), eq("k1"), anyString(), any(), any(), any()))
+                .thenReturn(0);
+        when(idempotencyRecordRepository.findById(new IdempotencyRecordId("user", "k1")))
+                .thenReturn(Optional.of(stored));
+
+        assertThrows(IdempotencyKeyReuseException.class,
+                () -> idempotencyService.execute("user", "k1", "1:2:99", action));
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void execute_businessError_storedAndRethrown() {
+        when(idempotencyRecordRepository.insertIfAbsent(eq("user"), eq("k1"), anyString(), any(), any(), any()))
+                .thenReturn(1);
+
+        assertThrows(InsufficientFundsException.class, () -> idempotencyService.execute("user", "k1", "1:2:10",
+                storeOutcome -> { throw new InsufficientFundsException(); }));
+
+        verify(idempotencyRecordRepository).complete(eq("user"), eq("k1"), any(), eq(402), eq("Недостаточно средств"));
+    }
+
+    @Test
+    void execute_unexpectedError_releasesKey() {
+        when(idempotencyRecordRepository.insertIfAbsent(eq("user"), eq("k1"), anyString(), any(), any(), any()))
+                .thenReturn(1);
+
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute("user", "k1", "1:2:10",
+                storeOutcome -> { throw new IllegalStateException("boom"); }));
+
+        verify(idempotencyRecordRepository).release(eq("user"), eq("k1"), any());
+        verify(idempotencyRecordRepository, never()).complete(any(), any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void execute_releaseFails_originalErrorRethrown() {
+        when(idempotencyRecordRepository.insertIfAbsent(eq("user"), eq("k1"), anyString(), any(), any(), any()))
+                .thenReturn(1);
+        IllegalStateException releaseFailure = new IllegalStateException("db down");
+        when(idempotencyRecordRepository.release(eq("user"), eq("k1"), any())).thenThrow(releaseFailure);
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class,
+                () -> idempotencyService.execute("user", "k1", "1:2:10",
+                        storeOutcome -> { throw new IllegalStateException("boom"); }));
+
+        assertEquals("boom", ex.getMessage());
+        assertArrayEquals(new Throwable[]{releaseFailure}, ex.getSuppressed());
+    }
+
+    @Test
+    void execute_concurrentUpdateConflict_releasesKeyForRetry() {
+        when(idempotencyRecordRepository.insertIfAbsent(eq("user"), eq("k1"), anyString(), any(), any(), any()))
+                .thenReturn(1);
+        when(idempotencyRecordRepository.complete(eq("user"), eq("k1"), any(), eq(204), isNull())).thenReturn(1);
+
+        assertThrows(ConcurrentCardUpdateException.class, () -> idempotencyService.execute("user", "k1", "1:2:10",
+                storeOutcome -> { throw new ConcurrentCardUpdateException(); }));
+
+        verify(idempotencyRecordRepository).release(eq("user"), eq("k1"), any());
+        verify(idempotencyRecordRepository, never()).complete(any(), any(), any(), eq(409), any());
+
+        assertFalse(idempotencyService.execute("user", "k1", "1:2:10", action));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void execute_blankKey_rejected() {
+        assertThrows(InvalidIdempotencyKeyException.class,
+                () -> idempotencyService.execute("user", " ", "1:2:10", action));
+        verifyNoInteractions(idempotencyRecordRepository);
+    }
+
+    @Test
+    void sweepExpired_deletesExpiredKeys() {
+        idempotencyService.sweepExpired();
+
+        verify(idempotencyRecordRepository).deleteExpired(any(LocalDateTime.class));
+    }
+
+    private IdempotencyRecord storedRecord(String fingerprint, Integer status, String message) throws Exception {
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                .digest(fingerprint.getBytes(StandardCharsets.UTF_8)));
+        return IdempotencyRecord.builder()
+                .id(new IdempotencyRecordId("user", "k1"))
+                .requestHash(hash)
+                .responseStatus(status)
+                .responseMessage(message)
+                .createdAt(LocalDateTime.now())
+                .expiresAt(LocalDateTime.now().plusMinutes(1))
+                .build();
+    }
+}
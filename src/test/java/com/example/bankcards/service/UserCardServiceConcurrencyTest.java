@@ -0,0 +1,192 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.BaseIntegrationTest;
+import com.example.bankcards.dto.BatchTransferItemStatus;
+import com.example.bankcards.dto.BatchTransferMode;
+import com.example.bankcards.dto.TransferRequest;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.ConcurrentCardUpdateException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Нагрузочная проверка переводов: параллельные переводы
+ * не теряют и не создают деньги и не приводят к deadlock.
+ */
+class UserCardServiceConcurrencyTest extends BaseIntegrationTest {
+
+    private static final String USERNAME = "user";
+    private static final int CARDS = 6;
+    private static final int THREADS = 64;
+    private static final int TRANSFERS_PER_THREAD = 25;
+    private static final BigDecimal INITIAL_BALANCE = new BigDecimal("1000.00");
+
+    @Autowired
+    private UserCardService userCardService;
+
+    @Autowired
+    private AdminCardService adminCardService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<Long> cardIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < CARDS; i++) {
+            Card card = adminCardService.createCard(USERNAME, INITIAL_BALANCE, 3);
+            cardIds.add(card.getId());
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        setTransferMode(TransferMode.PESSIMISTIC);
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbcTemplate);
+        Map<String, List<Long>> params = Map.of("ids", cardIds);
+        named.update("DELETE FROM transactions WHERE from_card_id IN (:ids) OR to_card_id IN (:ids)", params);
+        named.update("DELETE FROM cards WHERE id IN (:ids)", params);
+        cardIds.clear();
+    }
+
+    @ParameterizedTest
+    @EnumSource(TransferMode.class)
+    void parallelTransfers_preserveTotalBalance(TransferMode mode) throws Exception {
+        setTransferMode(mode);
+        AtomicInteger completed = new AtomicInteger();
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        Long from = cardIds.get(random.nextInt(CARDS));
+                        Long to = cardIds.get(random.nextInt(CARDS));
+                        BigDecimal amount = BigDecimal.valueOf(random.nextInt(1, 300));
+                        try {
+                            userCardService.transferBetweenCards(USERNAME, from, to, amount);
+                            completed.incrementAndGet();
+                        } catch (InsufficientFundsException | ConcurrentCardUpdateException expected) {
+                            // допустимые исходы: случайные суммы и исчерпанные повторы
+                        } catch (Throwable e) {
+                            unexpected.add(e);
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES), "Переводы не завершились вовремя");
+
+        assertTrue(unexpected.isEmpty(), () -> "Неожиданные ошибки: " + unexpected);
+        assertTrue(completed.get() > 0);
+
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbcTemplate);
+        Map<String, List<Long>> params = Map.of("ids", cardIds);
+
+        BigDecimal total = named.queryForObject(
+                "SELECT SUM(balance) FROM cards WHERE id IN (:ids)", params, BigDecimal.class);
+        assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(CARDS)).compareTo(total));
+
+        Integer negative = named.queryForObject(
+                "SELECT COUNT(*) FROM cards WHERE id IN (:ids) AND balance < 0", params, Integer.class);
+        assertEquals(0, negative);
+
+        Integer logged = named.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE from_card_id IN (:ids)", params, Integer.class);
+        assertEquals(completed.get(), logged);
+    }
+
+    @Test
+    void parallelBatches_preserveTotalBalance() throws Exception {
+        AtomicInteger completed = new AtomicInteger();
+        Queue<Throwable> unexpected = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                executor.submit(() -> {
+                    start.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD / 5; i++) {
+                        List<TransferRequest> batch = new ArrayList<>();
+                        for (int j = 0; j < 5; j++) {
+                            TransferRequest transfer = new TransferRequest();
+                            transfer.setFromCardId(cardIds.get(random.nextInt(CARDS)));
+                            transfer.setToCardId(cardIds.get(random.nextInt(CARDS)));
+                            transfer.setAmount(BigDecimal.valueOf(random.nextInt(1, 300)));
+                            batch.add(transfer);
+                        }
+                        try {
+                            BatchTransferMode mode = random.nextBoolean()
+                                    ? BatchTransferMode.BEST_EFFORT
+                                    : BatchTransferMode.ALL_OR_NOTHING;
+                            completed.addAndGet((int) userCardService.transferBatch(USERNAME, batch, mode).stream()
+                                    .filter(r -> r.getStatus() == BatchTransferItemStatus.COMPLETED)
+                                    .count());
+                        } catch (Throwable e) {
+                            unexpected.add(e);
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(5, TimeUnit.MINUTES), "Переводы не завершились вовремя");
+
+        assertTrue(unexpected.isEmpty(), () -> "Неожиданные ошибки: " + unexpected);
+        assertTrue(completed.get() > 0);
+
+        NamedParameterJdbcTemplate named = new NamedParameterJdbcTemplate(jdbcTemplate);
+        Map<String, List<Long>> params = Map.of("ids", cardIds);
+
+        BigDecimal total = named.queryForObject(
+                "SELECT SUM(balance) FROM cards WHERE id IN (:ids)", params, BigDecimal.class);
+        assertEquals(0, INITIAL_BALANCE.multiply(BigDecimal.valueOf(CARDS)).compareTo(total));
+
+        Integer logged = named.queryForObject(
+                "SELECT COUNT(*) FROM transactions WHERE from_card_id IN (:ids)", params, Integer.class);
+        assertEquals(completed.get(), logged);
+    }
+
+    private void setTransferMode(TransferMode mode) {
+        Object target = AopTestUtils.getUltimateTargetObject(userCardService);
+        ReflectionTestUtils.setField(target, "transferMode", mode);
+    }
+}
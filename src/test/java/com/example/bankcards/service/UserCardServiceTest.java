@@ -1,30 +1,39 @@
 package com.example.bankcards.service;
 
-import com.example.bankcards.dto.CardFilterRequest;
+import com.example.bankcards.dto.*;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.User;
 import com.example.bankcards.entity.CardStatus;
 import com.example.bankcards.exception.*;
 import com.example.bankcards.repository.CardRepository;
 import com.example.bankcards.repository.UserRepository;
-import com.example.bankcards.util.EncryptionUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
-import org.mockito.Mockito;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.access.AccessDeniedException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.util.Optional;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -40,6 +49,21 @@ class UserCardServiceTest {
     @Mock
     private TransactionService transactionService;
 
+    @Mock
+    private CardEncryptionService cardEncryptionService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private DecryptedPanCache decryptedPanCache = new DecryptedPanCache();
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     @InjectMocks
     private UserCardService userCardService;
 
@@ -79,13 +103,14 @@ class UserCardServiceTest {
         when(userRepository.findByUsername("test"))
                 .thenReturn(Optional.of(user));
 
-        when(cardRepository.findAll(any(Specification.class), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(card1, card2)));
+        when(cardRepository.findSummaries(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(summary(card1), summary(card2))));
 
-        var result = userCardService.getUserCards("test", null, Pageable.unpaged());
+        var result = userCardService.getUserCards("test", null, Pageable.unpaged(), true);
 
         assertEquals(2, result.getSize());
         verify(userRepository).findByUsername("test");
+        verify(cardRepository, never()).findAll(any(Specification.class), any(Pageable.class));
     }
 
     @Test
@@ -94,7 +119,7 @@ class UserCardServiceTest {
                 .thenReturn(Optional.empty());
 
         assertThrows(UserNotFoundException.class, () ->
-                userCardService.getUserCards("nope", null, null)
+                userCardService.getUserCards("nope", null, null, false)
         );
     }
 
@@ -105,34 +130,78 @@ class UserCardServiceTest {
 
         Pageable pageable = PageRequest.of(0, 1); // Первая страница, 1 элемент
 
-        when(cardRepository.findAll(any(Specification.class), eq(pageable)))
-                .thenReturn(new PageImpl<>(List.of(card1), pageable, 2)); // Всего 2 элемента
+        when(cardRepository.findSummaries(any(Specification.class), eq(pageable)))
+                .thenReturn(new PageImpl<>(List.of(summary(card1)), pageable, 2)); // Всего 2 элемента
 
-        var result = userCardService.getUserCards("test", null, pageable);
+        Page<CardSummary> result = (Page<CardSummary>) userCardService.getUserCards("test", null, pageable, true);
 
         assertEquals(1, result.getSize()); // На странице 1 элемент
         assertEquals(2, result.getTotalElements()); // Всего элементов
         assertEquals(2, result.getTotalPages()); // Всего страниц
-        assertEquals(1L, result.getContent().get(0).getId());
+        assertEquals(1L, result.getContent().get(0).id());
+    }
+
+    @Test
+    void getUserCards_withoutTotal_sliceWithoutCount() {
+        when(userRepository.findByUsername("test"))
+                .thenReturn(Optional.of(user));
+
+        Pageable pageable = PageRequest.of(0, 1);
+
+        when(cardRepository.findSummarySlice(any(Specification.class), eq(pageable)))
+                .thenReturn(new SliceImpl<>(List.of(summary(card1)), pageable, true));
+
+        var result = userCardService.getUserCards("test", null, pageable, false);
+
+        assertFalse(result instanceof Page);
+        assertTrue(result.hasNext());
+        verify(cardRepository, never()).findSummaries(any(), any());
+    }
+
+    @Test
+    void getDecryptedPanUserCards_withoutTotal_sliceWithoutCount() {
+        Pageable pageable = PageRequest.of(0, 2);
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        when(cardRepository.findSliceByOwner(user, pageable))
+                .thenReturn(new SliceImpl<>(List.of(card1, card2), pageable, false));
+        when(cardEncryptionService.decryptPans(List.of(card1, card2)))
+                .thenReturn(List.of("4000 3784 9671 4412 9458", "4000 3232 5424 3725 1699"));
+
+        var result = userCardService.getDecryptedPanUserCards("test", pageable, false);
+
+        assertTrue(result.isLast());
+        assertEquals("4000 3232 5424 3725 1699", result.getContent().get(1).getDecryptedNumber());
+        verify(cardRepository, never()).findAllByOwner(any(), any());
     }
 
     // ============================================================
     // GET DECRYPTED PAN
     // ============================================================
 
+    @Test
+    void getDecryptedPanUserCards_decryptsPageInBulk() {
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        when(cardRepository.findAllByOwner(user, Pageable.unpaged()))
+                .thenReturn(new PageImpl<>(List.of(card1, card2)));
+        when(cardEncryptionService.decryptPans(List.of(card1, card2)))
+                .thenReturn(List.of("4000 3784 9671 4412 9458", "4000 3232 5424 3725 1699"));
+
+        var result = userCardService.getDecryptedPanUserCards("test", Pageable.unpaged(), true);
+
+        assertEquals("4000 3784 9671 4412 9458", result.getContent().get(0).getDecryptedNumber());
+        assertEquals("4000 3232 5424 3725 1699", result.getContent().get(1).getDecryptedNumber());
+        verify(cardEncryptionService, never()).decryptPan(any());
+    }
+
     @Test
     void getDecryptedPanUserCard_success() {
         when(cardRepository.findById(1L)).thenReturn(Optional.of(card1));
 
-        try (MockedStatic<EncryptionUtils> mocked = Mockito.mockStatic(EncryptionUtils.class)) {
+        when(cardEncryptionService.decryptPan(card1)).thenReturn("4000 3784 9671 4412 9458");
 
-            mocked.when(() -> EncryptionUtils.decrypt(card1.getEncryptedNumber(), card1.getAesKey()))
-                    .thenReturn("4000 3784 9671 4412 9458");
+        Card decryptedCard = userCardService.getDecryptedPanUserCard("test", 1L);
 
-            Card decryptedCard = userCardService.getDecryptedPanUserCard("test", 1L);
-
-            assertEquals("4000 3784 9671 4412 9458", decryptedCard.getDecryptedNumber());
-        }
+        assertEquals("4000 3784 9671 4412 9458", decryptedCard.getDecryptedNumber());
     }
 
     @Test
@@ -164,8 +233,7 @@ class UserCardServiceTest {
 
     @Test
     void transfer_success() {
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(card1));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(card2));
+        when(cardRepository.findAllByIdForUpdate(List.of(1L, 2L))).thenReturn(List.of(card1, card2));
 
         BigDecimal amount = new BigDecimal("10.00");
 
@@ -174,6 +242,8 @@ class UserCardServiceTest {
         assertEquals(new BigDecimal("90.00"), card1.getBalance());
         assertEquals(new BigDecimal("60.00"), card2.getBalance());
         verify(transactionService).saveTransaction(card1, card2, amount, card1.getCurrency(), "Transfer between user cards");
+        assertEquals(1, transferCount("success"));
+        assertEquals(1, meterRegistry.timer("bank.transfer.lock.wait").count());
     }
 
     @Test
@@ -183,14 +253,24 @@ class UserCardServiceTest {
         );
     }
 
+    @Test
+    void transfer_cardNotFound() {
+        when(cardRepository.findAllByIdForUpdate(List.of(1L, 99L))).thenReturn(List.of(card1));
+
+        assertThrows(CardNotFoundException.class, () ->
+                userCardService.transferBetweenCards("test", 1L, 99L, new BigDecimal("10"))
+        );
+        verifyNoInteractions(transactionService);
+    }
+
     @Test
     void transfer_insufficientFunds() {
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(card1));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(card2));
+        when(cardRepository.findAllByIdForUpdate(List.of(1L, 2L))).thenReturn(List.of(card1, card2));
 
         assertThrows(InsufficientFundsException.class, () ->
                 userCardService.transferBetweenCards("test", 1L, 2L, new BigDecimal("1000"))
         );
+        assertEquals(1, transferCount("insufficient_funds"));
     }
 
     @Test
@@ -200,12 +280,193 @@ class UserCardServiceTest {
         other.setId(999L);
         card1.setOwner(other);
 
-        when(cardRepository.findById(1L)).thenReturn(Optional.of(card1));
-        when(cardRepository.findById(2L)).thenReturn(Optional.of(card2));
+        when(cardRepository.findAllByIdForUpdate(List.of(1L, 2L))).thenReturn(List.of(card1, card2));
 
         assertThrows(AccessDeniedException.class, () ->
                 userCardService.transferBetweenCards("test", 1L, 2L, new BigDecimal("10"))
         );
+        assertEquals(1, transferCount("access_denied"));
+    }
+
+    @Test
+    void transfer_sourceNotActive() {
+        card1.setStatus(CardStatus.PENDING_BLOCK);
+        when(cardRepository.findAllByIdForUpdate(List.of(1L, 2L))).thenReturn(List.of(card1, card2));
+
+        assertThrows(CardNotActiveException.class, () ->
+                userCardService.transferBetweenCards("test", 1L, 2L, new BigDecimal("10"))
+        );
+        verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void transfer_conditionalUpdate_success() {
+        ReflectionTestUtils.setField(userCardService, "transferMode", TransferMode.CONDITIONAL_UPDATE);
+        BigDecimal amount = new BigDecimal("10.00");
+        when(cardRepository.debitIfSufficient(1L, "test", amount)).thenReturn(1);
+        when(cardRepository.credit(2L, "test", amount)).thenReturn(1);
+
+        userCardService.transferBetweenCards("test", 1L, 2L, amount);
+
+        verify(transactionService).saveTransfer(1L, 2L, amount, "Transfer between user cards");
+        verify(cardRepository, never()).findById(any());
+    }
+
+    @Test
+    void transfer_conditionalUpdate_updatesInIdOrder() {
+        ReflectionTestUtils.setField(userCardService, "transferMode", TransferMode.CONDITIONAL_UPDATE);
+        BigDecimal amount = new BigDecimal("10.00");
+        when(cardRepository.debitIfSufficient(2L, "test", amount)).thenReturn(1);
+        when(cardRepository.credit(1L, "test", amount)).thenReturn(1);
+
+        userCardService.transferBetweenCards("test", 2L, 1L, amount);
+
+        var inOrder = inOrder(cardRepository);
+        inOrder.verify(cardRepository).credit(1L, "test", amount);
+        inOrder.verify(cardRepository).debitIfSufficient(2L, "test", amount);
+    }
+
+    @Test
+    void transfer_conditionalUpdate_insufficientFunds() {
+        ReflectionTestUtils.setField(userCardService, "transferMode", TransferMode.CONDITIONAL_UPDATE);
+        BigDecimal amount = new BigDecimal("1000");
+        when(cardRepository.debitIfSufficient(1L, "test", amount)).thenReturn(0);
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(card1));
+
+        assertThrows(InsufficientFundsException.class, () ->
+                userCardService.transferBetweenCards("test", 1L, 2L, amount)
+        );
+        verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void transfer_conditionalUpdate_notOwner() {
+        ReflectionTestUtils.setField(userCardService, "transferMode", TransferMode.CONDITIONAL_UPDATE);
+        User other = new User();
+        other.setUsername("other");
+        card1.setOwner(other);
+        BigDecimal amount = new BigDecimal("10");
+        when(cardRepository.debitIfSufficient(1L, "test", amount)).thenReturn(0);
+        when(cardRepository.findById(1L)).thenReturn(Optional.of(card1));
+
+        assertThrows(AccessDeniedException.class, () ->
+                userCardService.transferBetweenCards("test", 1L, 2L, amount)
+        );
+    }
+
+    @Test
+    void transfer_conditionalUpdate_targetNotFound() {
+        ReflectionTestUtils.setField(userCardService, "transferMode", TransferMode.CONDITIONAL_UPDATE);
+        BigDecimal amount = new BigDecimal("10");
+        when(cardRepository.debitIfSufficient(1L, "test", amount)).thenReturn(1);
+        when(cardRepository.credit(99L, "test", amount)).thenReturn(0);
+        when(cardRepository.findById(99L)).thenReturn(Optional.empty());
+
+        assertThrows(CardNotFoundException.class, () ->
+                userCardService.transferBetweenCards("test", 1L, 99L, amount)
+        );
+        verifyNoInteractions(transactionService);
+    }
+
+    @Test
+    void transfer_optimistic_retriesOnVersionConflict() {
+        ReflectionTestUtils.setField(userCardService, "transferMode", TransferMode.OPTIMISTIC);
+        ReflectionTestUtils.setField(userCardService, "optimisticBackoffMs", 0L);
+        when(cardRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(card1, card2));
+        doThrow(new ObjectOptimisticLockingFailureException(Card.class, 1L))
+                .doNothing()
+                .when(transactionService).saveTransaction(any(), any(), any(), any(), any());
+
+        userCardService.transferBetweenCards("test", 1L, 2L, new BigDecimal("10.00"));
+
+        verify(cardRepository, times(2)).findAllById(List.of(1L, 2L));
+        verify(cardRepository, never()).findAllByIdForUpdate(any());
+    }
+
+    @Test
+    void transfer_optimistic_attemptsExhausted() {
+        ReflectionTestUtils.setField(userCardService, "transferMode", TransferMode.OPTIMISTIC);
+        ReflectionTestUtils.setField(userCardService, "optimisticBackoffMs", 0L);
+        ReflectionTestUtils.setField(userCardService, "optimisticMaxAttempts", 3);
+        when(cardRepository.findAllById(List.of(1L, 2L))).thenReturn(List.of(card1, card2));
+        doThrow(new ObjectOptimisticLockingFailureException(Card.class, 1L))
+                .when(transactionService).saveTransaction(any(), any(), any(), any(), any());
+
+        assertThrows(ConcurrentCardUpdateException.class, () ->
+                userCardService.transferBetweenCards("test", 1L, 2L, new BigDecimal("10.00"))
+        );
+        verify(cardRepository, times(3)).findAllById(List.of(1L, 2L));
+    }
+
+    // ============================================================
+    // BATCH TRANSFER
+    // ============================================================
+
+    @Test
+    void transferBatch_allOrNothing_success() {
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        when(cardRepository.findAllByIdForUpdate(new TreeSet<>(List.of(1L, 2L)))).thenReturn(List.of(card1, card2));
+
+        List<BatchTransferItemResult> results = userCardService.transferBatch("test",
+                List.of(transfer(1L, 2L, "80.00"), transfer(2L, 1L, "100.00"), transfer(1L, 2L, "120.00")),
+                BatchTransferMode.ALL_OR_NOTHING);
+
+        assertTrue(results.stream().allMatch(r -> r.getStatus() == BatchTransferItemStatus.COMPLETED));
+        verify(cardRepository).updateBalances(Map.of(1L, new BigDecimal("0.00"), 2L, new BigDecimal("150.00")));
+        verify(transactionService).saveTransactions(argThat(ledger -> ledger.size() == 3));
+    }
+
+    @Test
+    void transferBatch_allOrNothing_failureRollsBackBatch() {
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        when(cardRepository.findAllByIdForUpdate(new TreeSet<>(List.of(1L, 2L, 3L)))).thenReturn(List.of(card1, card2));
+
+        List<BatchTransferItemResult> results = userCardService.transferBatch("test",
+                List.of(transfer(1L, 2L, "10.00"), transfer(1L, 3L, "10.00")),
+                BatchTransferMode.ALL_OR_NOTHING);
+
+        assertEquals(BatchTransferItemStatus.ROLLED_BACK, results.get(0).getStatus());
+        assertEquals(BatchTransferItemStatus.FAILED, results.get(1).getStatus());
+        assertEquals(404, results.get(1).getCode());
+        verify(cardRepository, never()).updateBalances(any());
+        verifyNoInteractions(transactionService);
+        assertEquals(new BigDecimal("100.00"), card1.getBalance());
+    }
+
+    @Test
+    void transferBatch_bestEffort_appliesValidTransfers() {
+        User other = new User();
+        other.setId(2L);
+        Card foreign = new Card();
+        foreign.setId(3L);
+        foreign.setOwner(other);
+        foreign.setStatus(CardStatus.ACTIVE);
+        foreign.setBalance(BigDecimal.ZERO);
+
+        when(userRepository.findByUsername("test")).thenReturn(Optional.of(user));
+        when(cardRepository.findAllByIdForUpdate(new TreeSet<>(List.of(1L, 2L, 3L))))
+                .thenReturn(List.of(card1, card2, foreign));
+
+        List<BatchTransferItemResult> results = userCardService.transferBatch("test",
+                List.of(transfer(1L, 2L, "70.00"), transfer(1L, 2L, "70.00"), transfer(1L, 3L, "10.00")),
+                BatchTransferMode.BEST_EFFORT);
+
+        assertEquals(BatchTransferItemStatus.COMPLETED, results.get(0).getStatus());
+        assertEquals(BatchTransferItemStatus.FAILED, results.get(1).getStatus());
+        assertEquals(402, results.get(1).getCode());
+        assertEquals(BatchTransferItemStatus.FAILED, results.get(2).getStatus());
+        assertEquals(403, results.get(2).getCode());
+        verify(cardRepository).updateBalances(Map.of(1L, new BigDecimal("30.00"), 2L, new BigDecimal("120.00")));
+        verify(transactionService).saveTransactions(argThat(ledger -> ledger.size() == 1));
+    }
+
+    @Test
+    void transferBatch_userNotFound() {
+        when(userRepository.findByUsername("test")).thenReturn(Optional.empty());
+
+        assertThrows(UserNotFoundException.class, () -> userCardService.transferBatch("test",
+                List.of(transfer(1L, 2L, "10.00")), BatchTransferMode.BEST_EFFORT));
+        verifyNoInteractions(cardRepository);
     }
 
     // ============================================================
@@ -252,6 +513,7 @@ class UserCardServiceTest {
         userCardService.requestBlockCard(1L, "test");
 
         assertEquals(CardStatus.PENDING_BLOCK, card1.getStatus());
+        verify(eventPublisher).publishEvent(new CardChangedEvent(1L));
     }
 
     @Test
@@ -290,13 +552,13 @@ class UserCardServiceTest {
         CardFilterRequest filter = new CardFilterRequest();
         filter.setStatus(CardStatus.ACTIVE);
 
-        when(cardRepository.findAll(any(Specification.class), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(card1, card2)));
+        when(cardRepository.findSummaries(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(summary(card1), summary(card2))));
 
-        var result = userCardService.getUserCards("test", filter, Pageable.unpaged());
+        var result = userCardService.getUserCards("test", filter, Pageable.unpaged(), true);
 
         assertEquals(2, result.getSize());
-        verify(cardRepository).findAll(any(Specification.class), any(Pageable.class));
+        verify(cardRepository).findSummaries(any(Specification.class), any(Pageable.class));
     }
 
     @Test
@@ -308,13 +570,13 @@ class UserCardServiceTest {
         filter.setMinBalance(new BigDecimal("50.00"));
 
         // Только card1 имеет баланс >= 50
-        when(cardRepository.findAll(any(Specification.class), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(card1)));
+        when(cardRepository.findSummaries(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(summary(card1))));
 
-        var result = userCardService.getUserCards("test", filter, Pageable.unpaged());
+        var result = userCardService.getUserCards("test", filter, Pageable.unpaged(), true);
 
         assertEquals(1, result.getSize());
-        assertEquals(1L, result.getContent().get(0).getId());
+        assertEquals(1L, result.getContent().get(0).id());
     }
 
     @Test
@@ -326,13 +588,13 @@ class UserCardServiceTest {
         filter.setMaxBalance(new BigDecimal("60.00"));
 
         // Только card2 имеет баланс <= 60
-        when(cardRepository.findAll(any(Specification.class), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(card2)));
+        when(cardRepository.findSummaries(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(summary(card2))));
 
-        var result = userCardService.getUserCards("test", filter, Pageable.unpaged());
+        var result = userCardService.getUserCards("test", filter, Pageable.unpaged(), true);
 
         assertEquals(1, result.getSize());
-        assertEquals(2L, result.getContent().get(0).getId());
+        assertEquals(2L, result.getContent().get(0).id());
     }
 
     @Test
@@ -346,14 +608,14 @@ class UserCardServiceTest {
         filter.setMaxBalance(new BigDecimal("120.00"));
 
         // Только card1 подходит под все критерии
-        when(cardRepository.findAll(any(Specification.class), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(card1)));
+        when(cardRepository.findSummaries(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(summary(card1))));
 
-        var result = userCardService.getUserCards("test", filter, Pageable.unpaged());
+        var result = userCardService.getUserCards("test", filter, Pageable.unpaged(), true);
 
         assertEquals(1, result.getSize());
-        assertEquals(1L, result.getContent().get(0).getId());
-        assertEquals(new BigDecimal("100.00"), result.getContent().get(0).getBalance());
+        assertEquals(1L, result.getContent().get(0).id());
+        assertEquals(new BigDecimal("100.00"), result.getContent().get(0).balance());
     }
 
     @Test
@@ -365,10 +627,10 @@ class UserCardServiceTest {
         filter.setStatus(CardStatus.BLOCKED);
 
         // Ни одна карта не заблокирована
-        when(cardRepository.findAll(any(Specification.class), any(Pageable.class)))
+        when(cardRepository.findSummaries(any(Specification.class), any(Pageable.class)))
                 .thenReturn(new PageImpl<>(List.of()));
 
-        var result = userCardService.getUserCards("test", filter, Pageable.unpaged());
+        var result = userCardService.getUserCards("test", filter, Pageable.unpaged(), true);
 
         assertEquals(0, result.getSize());
         assertTrue(result.getContent().isEmpty());
@@ -385,13 +647,29 @@ class UserCardServiceTest {
         filter.setMaxBalance(new BigDecimal("100.00"));
 
         // Только card1 имеет точный баланс 100.00
-        when(cardRepository.findAll(any(Specification.class), any(Pageable.class)))
-                .thenReturn(new PageImpl<>(List.of(card1)));
+        when(cardRepository.findSummaries(any(Specification.class), any(Pageable.class)))
+                .thenReturn(new PageImpl<>(List.of(summary(card1))));
 
-        var result = userCardService.getUserCards("test", filter, Pageable.unpaged());
+        var result = userCardService.getUserCards("test", filter, Pageable.unpaged(), true);
 
         assertEquals(1, result.getSize());
-        assertEquals(1L, result.getContent().get(0).getId());
+        assertEquals(1L, result.getContent().get(0).id());
+    }
+
+    private static TransferRequest transfer(Long fromCardId, Long toCardId, String amount) {
+        TransferRequest request = new TransferRequest();
+        request.setFromCardId(fromCardId);
+        request.setToCardId(toCardId);
+        request.setAmount(new BigDecimal(amount));
+        return request;
     }
-}
 
+    private static CardSummary summary(Card card) {
+        return new CardSummary(card.getId(), card.getOwner().getId(), card.getPanLast4(), card.getStatus(),
+                card.getBalance(), card.getExpiry(), card.getCurrency());
+    }
+
+    private long transferCount(String outcome) {
+        return meterRegistry.timer("bank.transfer", "mode", "PESSIMISTIC", "outcome", outcome).count();
+    }
+}
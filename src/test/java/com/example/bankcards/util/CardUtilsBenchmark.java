@@ -0,0 +1,31 @@
+package com.example.bankcards.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Генерация номера карты при выпуске и маскирование номера в каждом ответе со списком карт.
+ *
+ * <p>Запускается из {@link CardUtilsBenchmarkTest}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardUtilsBenchmark {
+
+    private String panLast4 = "9012";
+
+    @Benchmark
+    public String generateCardNumber() {
+        return CardUtils.generateCardNumber();
+    }
+
+    @Benchmark
+    public String maskCardNumber() {
+        return CardUtils.maskCardNumber(panLast4);
+    }
+}
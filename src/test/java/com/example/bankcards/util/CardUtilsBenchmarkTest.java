@@ -0,0 +1,17 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.BenchmarkOptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Запуск {@link CardUtilsBenchmark}: {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+class CardUtilsBenchmarkTest {
+
+    @Test
+    void generateAndMask() throws Exception {
+        BenchmarkOptions.run(CardUtilsBenchmark.class, 1, 2);
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.bankcards.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Шифрование номера карты: прежний путь ({@code Cipher.getInstance("AES")} на каждый вызов,
+ * режим ECB, ключ из Base64) против AES-GCM с шифрами из пула.
+ *
+ * <p>Запускается из {@link EncryptionBenchmarkTest}.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EncryptionBenchmark {
+
+    private static final String PAN = "4276123456789012";
+
+    private String base64Key;
+    private SecretKey key;
+    private String ecbCiphertext;
+    private String gcmCiphertext;
+
+    @Setup
+    public void setUp() {
+        base64Key = EncryptionUtils.generateAesKey();
+        key = EncryptionUtils.decodeKey(base64Key);
+        ecbCiphertext = legacyEncrypt();
+        gcmCiphertext = EncryptionUtils.encrypt(PAN, key);
+    }
+
+    @Benchmark
+    public String legacyEncrypt() {
+        try {
+            Cipher cipher = Cipher.getInstance("AES");
+            cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(Base64.getDecoder().decode(base64Key), "AES"));
+            return Base64.getEncoder().encodeToString(cipher.doFinal(PAN.getBytes()));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public String legacyDecrypt() {
+        try {
+            Cipher cipher = Cipher.getInstance("AES");
+            cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(Base64.getDecoder().decode(base64Key), "AES"));
+            return new String(cipher.doFinal(Base64.getDecoder().decode(ecbCiphertext)));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public String gcmEncrypt() {
+        return EncryptionUtils.encrypt(PAN, key);
+    }
+
+    @Benchmark
+    public String gcmDecrypt() {
+        return EncryptionUtils.decrypt(gcmCiphertext, key);
+    }
+
+    @Benchmark
+    public String generateAesKey() {
+        return EncryptionUtils.generateAesKey();
+    }
+
+    @Benchmark
+    public String pooledEcbDecrypt() {
+        return EncryptionUtils.decrypt(ecbCiphertext, key);
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.BenchmarkOptions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Запуск {@link EncryptionBenchmark}: {@code mvn test -Pbenchmark}.
+ * Замер идёт в четырёх потоках, чтобы пул шифров работал под конкуренцией.
+ */
+@Tag("benchmark")
+class EncryptionBenchmarkTest {
+
+    @Test
+    void gcmPooled_versusLegacyEcb() throws Exception {
+        BenchmarkOptions.run(EncryptionBenchmark.class, 4, 6);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.AESDecryptionException;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncryptionUtilsTest {
+
+    /** Карта пользователя из начальных данных, зашифрованная прежним режимом ECB. */
+    private static final String ECB_CIPHERTEXT = "Z5bqAhb7OVJUAMyhTJDLeb2v8BhChEy+adJDPMbiN3M=";
+    private static final String ECB_KEY = "qHn3qAydez1cscTZBLl49ZtX90WMUBClfxOT3m99HGU=";
+
+    private final SecretKey key = EncryptionUtils.generateDataKey();
+
+    @Test
+    void encrypt_gcmWithNonceCiphertextAndTag() {
+        String encrypted = EncryptionUtils.encrypt("4276123456789012", key);
+
+        assertTrue(EncryptionUtils.isGcm(encrypted));
+        byte[] raw = Base64.getDecoder().decode(encrypted.substring("gcm1:".length()));
+        assertEquals(12 + 16 + 16, raw.length);
+        assertEquals("4276123456789012", EncryptionUtils.decrypt(encrypted, key));
+    }
+
+    @Test
+    void encrypt_freshNonceEveryTime() {
+        assertNotEquals(EncryptionUtils.encrypt("4276123456789012", key),
+                EncryptionUtils.encrypt("4276123456789012", key));
+    }
+
+    @Test
+    void decrypt_legacyEcbValue() {
+        assertFalse(EncryptionUtils.isGcm(ECB_CIPHERTEXT));
+        assertEquals("4000 3232 5424 3725 1699", EncryptionUtils.decrypt(ECB_CIPHERTEXT, ECB_KEY));
+    }
+
+    @Test
+    void decrypt_tamperedCiphertext_rejected() {
+        byte[] raw = Base64.getDecoder().decode(
+                EncryptionUtils.encrypt("4276123456789012", key).substring("gcm1:".length()));
+        raw[raw.length - 20] ^= 1;
+
+        assertThrows(AESDecryptionException.class,
+                () -> EncryptionUtils.decrypt("gcm1:" + Base64.getEncoder().encodeToString(raw), key));
+        assertEquals("4276123456789012",
+                EncryptionUtils.decrypt(EncryptionUtils.encrypt("4276123456789012", key), key));
+    }
+
+    @Test
+    void decrypt_wrongKey_rejected() {
+        String encrypted = EncryptionUtils.encrypt("4276123456789012", key);
+
+        assertThrows(AESDecryptionException.class,
+                () -> EncryptionUtils.decrypt(encrypted, EncryptionUtils.generateDataKey()));
+    }
+
+    @Test
+    void encryptDecrypt_concurrentVirtualThreads() throws Exception {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Boolean>> results = IntStream.range(0, 2_000)
+                    .mapToObj(i -> executor.submit(() -> {
+                        String pan = String.format("%016d", i);
+                        return pan.equals(EncryptionUtils.decrypt(EncryptionUtils.encrypt(pan, key), key));
+                    }))
+                    .toList();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        }
+    }
+}